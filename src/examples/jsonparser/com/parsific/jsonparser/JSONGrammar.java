@@ -0,0 +1,237 @@
+package com.parsific.examples.jsonparser;
+
+import static com.parsific.Combinators.and;
+import static com.parsific.Combinators.commit;
+import static com.parsific.Combinators.dropLeft;
+import static com.parsific.Combinators.dropRight;
+import static com.parsific.Combinators.map;
+import static com.parsific.Combinators.maybe;
+import static com.parsific.Combinators.or;
+import static com.parsific.Combinators.orDefault;
+import static com.parsific.Combinators.seperatedBy;
+import static com.parsific.Parsers.manyParser;
+import static com.parsific.Text.anyOf;
+import static com.parsific.Text.choice;
+import static com.parsific.Text.clear;
+import static com.parsific.Text.digits;
+import static com.parsific.Text.match;
+import static com.parsific.Text.on;
+import static com.parsific.Text.oneChar;
+import static com.parsific.Text.span;
+import static com.parsific.Text.span1;
+
+import com.parsific.CharClass;
+import com.parsific.Node;
+import com.parsific.Parser;
+import com.parsific.Parsers;
+import com.parsific.QuadFunction;
+import com.parsific.Span;
+import com.parsific.TriFunction;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The grammar of {@link JSONParser}. Its functions are kept in static fields
+ * so that {@link com.parsific.GrammarGenerator} can write a standalone parser
+ * for it; see the generateJSONParser task in build.gradle.
+ */
+final class JSONGrammar {
+
+  static final Function<Character, Boolean> IS_PLUS = c -> c == '+';
+
+  static final Function<String, JSONValue> TO_FALSE =
+      f -> new JSONBoolean(false);
+
+  static final Function<String, JSONValue> TO_TRUE =
+      t -> new JSONBoolean(true);
+
+  static final Function<String, JSONValue> TO_NULL = n -> JSONNull.instance();
+
+  static final Function<LinkedList<JSONValue>, JSONValue> TO_ARRAY =
+      list -> new JSONArray(list.toArray(new JSONValue[list.size()]));
+
+  static final Function<LinkedList<SimpleEntry<String, JSONValue>>, JSONValue>
+      TO_OBJECT = (list) -> {
+        final Map<String, JSONValue> map = new HashMap<>();
+        list.stream().forEach(
+            entry -> map.put(entry.getKey(), entry.getValue()));
+        return new JSONObject(map);
+      };
+
+  static final TriFunction<
+          JSONValue, Character, JSONValue, SimpleEntry<String, JSONValue>>
+      TO_ENTRY = (key, delimiter, value) ->
+          new SimpleEntry<>((String) key.value(), value);
+
+  /**
+   * The characters a string holds as they are, read a run at a time.
+   */
+  static final CharClass PLAIN = CharClass.of('\"', '\\').negate();
+
+  /**
+   * Joins the first run of a string with the pieces after it. A string
+   * without escapes is copied once, from its span.
+   */
+  static final BiFunction<Span, LinkedList<CharSequence>, JSONValue>
+      TO_STRING = (run, pieces) -> {
+        if (pieces.isEmpty()) {
+          return new JSONString(run.toString());
+        }
+        StringBuilder builder = new StringBuilder(run);
+        for (CharSequence piece : pieces) {
+          builder.append(piece);
+        }
+        return new JSONString(builder.toString());
+      };
+
+  static final BiFunction<Character, Character, Character> ESCAPED =
+      (a, b) -> b;
+
+  private static final String[] ASCII = new String[128];
+
+  static {
+    for (char c = 0; c < ASCII.length; c++) {
+      ASCII[c] = String.valueOf(c);
+    }
+  }
+
+  /**
+   * An escaped character as a piece of a string, without allocating.
+   */
+  static final Function<Character, CharSequence> TO_PIECE =
+      c -> ASCII[c];
+
+  static final Function<Span, CharSequence> RUN_PIECE = run -> run;
+
+  static final Function<String, Integer> TO_INTEGER = Integer::parseInt;
+
+  static final QuadFunction<Boolean, Integer, Integer, Double, JSONValue>
+      TO_NUMBER = JSONGrammar::toNumber;
+
+  static final BiFunction<Boolean, Integer, Double> TO_POWER_OF_10 =
+      JSONGrammar::genTo10;
+
+  /**
+   * Builds the grammar of a json value.
+   */
+  static Parser<Character, JSONValue> grammar() {
+    Node.Ref<Character, JSONValue> value = Parsers.ref("value");
+    return value.set(valueParser(value));
+  }
+
+  /**
+   * A valid json value is a string, number, boolean, null, array or object.
+   * The first character decides which one to parse.
+   */
+  private static Parser<Character, JSONValue> valueParser(
+      Parser<Character, JSONValue> value) {
+      return clear(choice(
+          on("\"", stringValueParser()),
+          on("-+0123456789", numberParser()),
+          on("f", map(match("false"), TO_FALSE)),
+          on("t", map(match("true"), TO_TRUE)),
+          on("n", map(match("null"), TO_NULL)),
+          on("[", arrayParser(value)),
+          on("{", objectParser(value))));
+  }
+
+  /**
+   * Once its opening bracket has been read nothing else can match, so an
+   * array commits to it and a later error fails the parse where it is.
+   */
+  private static Parser<Character, JSONValue> arrayParser(
+      Parser<Character, JSONValue> value) {
+    return map(
+      dropRight(
+          commit(oneChar('['), seperatedBy(value, oneChar(','))),
+          oneChar(']')),
+      TO_ARRAY);
+  }
+
+  private static Parser<Character, JSONValue> objectParser(
+      Parser<Character, JSONValue> value) {
+    return map(
+      dropRight(
+          commit(oneChar('{'), seperatedBy(entryParser(value), oneChar(','))),
+          oneChar('}')),
+      TO_OBJECT);
+  }
+
+  private static Parser<Character, SimpleEntry<String, JSONValue>> entryParser(
+      Parser<Character, JSONValue> value) {
+    return clear(and(
+      TO_ENTRY, quotedStringParser(), clear(oneChar(':')), value));
+  }
+
+  /**
+   * A string value commits once its opening quote has been read. Keys are
+   * parsed by quotedStringParser, which does not, so that a rule sharing it
+   * may still try another alternative.
+   */
+  private static Parser<Character, JSONValue> stringValueParser() {
+    return dropRight(
+        commit(oneChar('\"'), stringParser()), oneChar('\"'));
+  }
+
+  private static Parser<Character, JSONValue> quotedStringParser() {
+    return dropRight(
+        dropLeft(stringParser(), oneChar('\"')), oneChar('\"'));
+  }
+
+  /**
+   * Reads runs of plain characters as spans, so that no character is boxed.
+   * A backslash that does not start an escape is kept as it is.
+   */
+  private static Parser<Character, JSONValue> stringParser() {
+    return and(
+        TO_STRING,
+        span(PLAIN),
+        manyParser(or(
+            map(escapedChar(), TO_PIECE),
+            map(span1(PLAIN), RUN_PIECE),
+            map(oneChar('\\'), TO_PIECE))));
+  }
+
+  private static Parser<Character, Character> escapedChar() {
+    return and(ESCAPED, oneChar('\\'), anyOf("\"\\\b\f\n\r\t"));
+  }
+
+  private static Parser<Character, JSONValue> numberParser() {
+    return and(
+        TO_NUMBER,
+        orDefault(map(anyOf("-+"), IS_PLUS), Boolean.TRUE),
+        integerParser(),
+        orDefault(
+            dropLeft(integerParser(), maybe(oneChar('.'))),
+            0),
+        orDefault(toPowerOf10Parser(), 1.0));
+  }
+
+  private static Parser<Character,Integer> integerParser() {
+    return map(orDefault(digits(), "0"), TO_INTEGER);
+  }
+
+  private static Parser<Character, Double> toPowerOf10Parser() {
+    return and(
+        TO_POWER_OF_10,
+        dropLeft(
+            orDefault(map(anyOf("-+"), IS_PLUS), Boolean.TRUE),
+            anyOf("eE")),
+        map(digits(), TO_INTEGER));
+  }
+
+  private static JSONNumber toNumber(
+      Boolean isPositive, Integer wholeNumber, Integer decimalNumber, Double to10) {
+    Double doub = Double.parseDouble(wholeNumber + "." + decimalNumber);
+    return new JSONNumber((isPositive ? 1 : -1) * doub * to10);
+  }
+
+  private static double genTo10(Boolean isPositive, Integer digits) {
+    return Math.pow(10.0, (isPositive ? 1 : -1) * digits);
+  }
+}
@@ -1,131 +1,106 @@
 package com.parsific.examples.jsonparser;
 
-import static com.parsific.Combinators.and;
-import static com.parsific.Combinators.dropBoth;
-import static com.parsific.Combinators.dropLeft;
-import static com.parsific.Combinators.dropRight;
-import static com.parsific.Combinators.map;
-import static com.parsific.Combinators.maybe;
-import static com.parsific.Combinators.or;
-import static com.parsific.Combinators.orDefault;
-import static com.parsific.Combinators.seperatedBy;
-import static com.parsific.Parsers.many;
-import static com.parsific.Parsers.manyParser;
-import static com.parsific.Parsers.not;
-import static com.parsific.Parsers.one;
-import static com.parsific.Text.anyOf;
-import static com.parsific.Text.clear;
-import static com.parsific.Text.digits;
-import static com.parsific.Text.match;
-
 import com.parsific.Either;
+import com.parsific.Optimizer;
+import com.parsific.ParseContext;
 import com.parsific.Parser;
 import com.parsific.ParserException;
+import com.parsific.Parsers;
 import com.parsific.Text;
 
-import java.util.AbstractMap.SimpleEntry;
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.Optional;
-import java.util.function.Function;
 
+/**
+ * Parses JSON documents. The grammar and the parsers built from it are
+ * immutable, so a JSONParser may be shared by threads, and each parse runs on
+ * the calling thread's {@link ParseContext}.
+ */
 public class JSONParser {
 
-  private static final Parser<Character, JSONValue> PARSER = valueParser();
+  private static final Parser<Character, JSONValue> GRAMMAR =
+      Optimizer.optimize(JSONGrammar.grammar());
 
-  public Either<ParserException, JSONValue> parse(String json) {
-    return Text.parseString(PARSER, json);
-  }
+  private final Parser<Character, JSONValue> parser;
 
   /**
-   * A valid json value is a string, number, boolean, null, array or object.
+   * A parser that runs the optimized grammar. Every level of nesting in a
+   * document takes several frames of the Java stack, so documents nested a
+   * few thousand levels deep overflow it.
    */
-  private static Parser<Character, JSONValue> valueParser() {
-      return or(
-          clear(quotedStringParser()),
-          clear(numberParser()),
-          clear(map(match("false"), f -> new JSONBoolean(false))),
-          clear(map(match("true"), t -> new JSONBoolean(true))),
-          clear(map(match("null"), n -> JSONNull.instance())),
-          clear(arrayParser()),
-          clear(objectParser()));
-  }
-
-  private static Parser<Character, JSONValue> arrayParser() {
-    return map(
-      dropBoth(seperatedBy(delayedJSONParser(), ','), one('['), one(']')),
-      list -> new JSONArray(list.toArray(new JSONValue[list.size()])));
-  }
-
-  private static Parser<Character, JSONValue> objectParser() {
-    Function<LinkedList<SimpleEntry<String, JSONValue>>, JSONValue> toJSONObject =
-        (list) -> {
-          final Map<String, JSONValue> map = new HashMap<>();
-          list.stream().forEach(
-              entry -> map.put(entry.getKey(), entry.getValue()));
-          return new JSONObject(map);
-        };
-    return map(
-      dropBoth(seperatedBy(entryParser(), ','), one('{'), one('}')), toJSONObject);
-  }
-
-  private static Parser<Character, SimpleEntry<String, JSONValue>> entryParser() {
-    return clear(and(
-      (key, delimiter, value) -> new SimpleEntry<>((String) key.value(), value),
-      quotedStringParser(), clear(one(':')), delayedJSONParser()));
-  }
-
-  private static Parser<Character, JSONValue> quotedStringParser() {
-    return dropBoth(stringParser(), one('\"'), one('\"'));
+  public JSONParser() {
+    this.parser = GRAMMAR;
   }
 
-  private static Parser<Character, JSONValue> stringParser() {
-    return map(
-        manyParser(or(escapedChar(), not('\"'))),
-        (list) -> new JSONString(Text.concat(list)));
-  }
-
-  private static Parser<Character, Character> escapedChar() {
-    return and((a,b) -> b, one('\\'), anyOf("\"\\\b\f\n\r\t"));
+  /**
+   * A parser for untrusted documents. It runs on a stack on the heap and
+   * fails documents with values nested more than maxDepth levels deep.
+   */
+  public JSONParser(int maxDepth) {
+    this.parser = Parsers.iterative(GRAMMAR, maxDepth);
   }
 
-  private static Parser<Character, JSONValue> numberParser() {
-    return and(
-        JSONParser::toNumber,
-        orDefault(map(anyOf("-+"), c -> c == '+'), Boolean.TRUE),
-        integerParser(),
-        orDefault(
-            dropLeft(integerParser(), maybe(one('.'))),
-            0),
-        orDefault(toPowerOf10Parser(), 1.0)); 
+  private JSONParser(Parser<Character, JSONValue> parser) {
+    this.parser = parser;
   }
 
-  private static Parser<Character,Integer> integerParser() {
-    return map(orDefault(digits(), "0"), Integer::parseInt);
+  /**
+   * A parser that runs the grammar compiled to a class. It uses the
+   * GeneratedJSONParser written at build time by the generateJSONParser task
+   * if that is on the class path; see {@link com.parsific.GrammarGenerator}.
+   * Otherwise the first call compiles the grammar with
+   * {@link Parsers#compile}, which runs javac and takes a while, and without
+   * a system Java compiler it runs the optimized grammar.
+   */
+  public static JSONParser compiled() {
+    return new JSONParser(Compiled.PARSER);
   }
 
-  private static Parser<Character, Double> toPowerOf10Parser() {
-    return and(
-        JSONParser::genTo10, 
-        dropLeft(
-            orDefault(map(anyOf("-+"), c -> c == '+'), Boolean.TRUE),
-            anyOf("eE")),
-        map(digits(), Integer::parseInt));
+  public Either<ParserException, JSONValue> parse(String json) {
+    return ParseContext.current().parse(parser, json);
   }
 
-  private static JSONNumber toNumber(
-      Boolean isPositive, Integer wholeNumber, Integer decimalNumber, Double to10) {
-    Double doub = Double.parseDouble(wholeNumber + "." + decimalNumber);
-    return new JSONNumber((isPositive ? 1 : -1) * doub * to10);
+  /**
+   * Parses each of the documents on the common fork/join pool, returning the
+   * results in order.
+   */
+  public List<Either<ParserException, JSONValue>> parseAll(
+      Collection<? extends CharSequence> documents) {
+    return Text.parseAll(parser, documents);
   }
 
-  private static double genTo10(Boolean isPositive, Integer digits) {
-    return Math.pow(10.0, (isPositive ? 1 : -1) * digits);
+  public Either<ParserException, JSONValue> parseFile(Path path)
+      throws IOException {
+    return Text.parseFile(parser, path);
   }
 
-  private static Parser<Character, JSONValue> delayedJSONParser() {
-    return (iterator) -> PARSER.parse(iterator);
+  /**
+   * Holds the compiled grammar, so that it is loaded or compiled when first
+   * asked for rather than when JSONParser loads.
+   */
+  private static final class Compiled {
+
+    private static final String GENERATED =
+        "com.parsific.examples.jsonparser.GeneratedJSONParser";
+
+    private static final Parser<Character, JSONValue> PARSER = load();
+
+    @SuppressWarnings("unchecked")
+    private static Parser<Character, JSONValue> load() {
+      Class<?> type;
+      try {
+        type = Class.forName(GENERATED);
+      } catch (ClassNotFoundException e) {
+        return Parsers.compile(GRAMMAR);
+      }
+      try {
+        return (Parser<Character, JSONValue>)
+            type.getDeclaredConstructor().newInstance();
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Could not create " + GENERATED, e);
+      }
+    }
   }
 }
@@ -9,6 +9,8 @@ import com.parsific.ParserException;
 import org.junit.Test;
 
 import java.util.AbstractMap.SimpleEntry;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 public class JSONParserTest {
@@ -47,6 +49,12 @@ public class JSONParserTest {
     assertJSONEquals(expected, actual);
   }
 
+  @Test
+  public void testStringKeepsBackslashWithoutEscape() {
+    assertJSONEquals("a\\x\\", "\"a\\x\\\\\"");
+    assertJSONEquals("", "\"\"");
+  }
+
   @Test
   public void testArray() {
     // Also tests that the parser clears whitespace.
@@ -73,6 +81,52 @@ public class JSONParserTest {
     assertEquals(new Double(2.0), ((JSONValue) object.get("key2")).value());
   }
 
+  @Test
+  public void testDeepNesting() {
+    JSONParser deep = new JSONParser(100001);
+    String json = nested(100000, "1");
+    JSONValue value = deep.parse(json).right();
+    for (int i = 0; i < 100000; i++) {
+      value = ((JSONValue[]) value.value())[0];
+    }
+    assertEquals(new Double(1), value.value());
+    assertTrue(new JSONParser(100).parse(json).isLeft());
+  }
+
+  @Test
+  public void testCompiled() {
+    JSONParser compiled = JSONParser.compiled();
+    JSONValue[] value =
+        (JSONValue[]) compiled.parse("[1, \"a\", {\"b\": 2}]").right().value();
+    assertEquals(new Double(1), value[0].value());
+    assertEquals("a", value[1].value());
+    assertTrue(value[2].isObject());
+    assertEquals(
+        parser.parse("[1,]").left().getErrorIndex(),
+        compiled.parse("[1,]").left().getErrorIndex());
+  }
+
+  @Test
+  public void testParseAll() {
+    List<Either<ParserException, JSONValue>> results =
+        parser.parseAll(Arrays.asList("1", "[", "true"));
+    assertEquals(new Double(1), results.get(0).right().value());
+    assertTrue(results.get(1).isLeft());
+    assertEquals(true, results.get(2).right().value());
+  }
+
+  private static String nested(int depth, String value) {
+    StringBuilder json = new StringBuilder();
+    for (int i = 0; i < depth; i++) {
+      json.append('[');
+    }
+    json.append(value);
+    for (int i = 0; i < depth; i++) {
+      json.append(']');
+    }
+    return json.toString();
+  }
+
   private void assertJSONEquals(Object expected, String json) {
     Either<ParserException, JSONValue> parseResult = parser.parse(json);
     assertTrue(parseResult.isRight());
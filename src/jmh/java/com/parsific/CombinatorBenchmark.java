@@ -0,0 +1,135 @@
+package com.parsific;
+
+import static com.parsific.Combinators.dropRight;
+import static com.parsific.Combinators.or;
+import static com.parsific.Parsers.manyParser;
+import static com.parsific.Text.manyChars;
+import static com.parsific.Text.match;
+import static com.parsific.Text.oneChar;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs single combinators over long inputs of a fixed length. Results are
+ * per input character.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombinatorBenchmark {
+
+  /**
+   * The length of every input, in characters.
+   */
+  static final int SIZE = 1 << 16;
+
+  /**
+   * Words matched by an or of literals, each the last alternative to be
+   * tried.
+   */
+  @State(Scope.Benchmark)
+  public static class FanOut {
+
+    @Param({"2", "8", "32"})
+    public int alternatives;
+
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    private String input;
+    private Parser<Character, LinkedList<String>> parser;
+
+    @Setup
+    public void setUp() {
+      @SuppressWarnings("unchecked")
+      Parser<Character, String>[] literals = new Parser[alternatives];
+      for (int i = 0; i < alternatives; i++) {
+        literals[i] = match("word" + i);
+      }
+      parser = engine(
+          manyParser(dropRight(or(literals), oneChar(';'))), compiled);
+      input = repeat("word" + (alternatives - 1) + ";");
+    }
+  }
+
+  /**
+   * A run of one character.
+   */
+  @State(Scope.Benchmark)
+  public static class Run {
+
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    private String input;
+    private Parser<Character, LinkedList<Character>> many;
+    private Parser<Character, String> manyChars;
+    private Parser<Character, LinkedList<String>> literals;
+
+    @Setup
+    public void setUp() {
+      input = repeat("literal");
+      many = engine(manyParser(oneChar(CharClass.LETTER)), compiled);
+      manyChars = engine(manyChars(CharClass.LETTER), compiled);
+      literals = engine(manyParser(match("literal")), compiled);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public Object orFanOut(FanOut state) {
+    return Text.parseString(state.parser, state.input);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public Object manyParserRun(Run state) {
+    return Text.parseString(state.many, state.input);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public Object manyCharsRun(Run state) {
+    return Text.parseString(state.manyChars, state.input);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public Object matchLiterals(Run state) {
+    return Text.parseString(state.literals, state.input);
+  }
+
+  private static <T> Parser<Character, T> engine(
+      Parser<Character, T> parser, boolean compiled) {
+    return compiled ? Parsers.compile(parser) : parser;
+  }
+
+  /**
+   * Returns the text repeated to exactly SIZE characters, the last copy cut
+   * short.
+   */
+  private static String repeat(String text) {
+    StringBuilder input = new StringBuilder(SIZE);
+    while (input.length() < SIZE) {
+      input.append(text);
+    }
+    input.setLength(SIZE);
+    return input.toString();
+  }
+}
@@ -0,0 +1,166 @@
+package com.parsific.examples.jsonparser;
+
+import com.parsific.Either;
+import com.parsific.Optimizer;
+import com.parsific.Parser;
+import com.parsific.ParserException;
+import com.parsific.Parsers;
+import com.parsific.Text;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses generated json documents of a fixed length. Results are per input
+ * character.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JSONParserBenchmark {
+
+  /**
+   * The length of every document, in characters.
+   */
+  static final int SIZE = 1 << 16;
+
+  /**
+   * The kinds of document.
+   */
+  public enum Shape {
+    /** An array of arrays nested 32 deep. */
+    DEEP,
+    /** An object with many keys. */
+    WIDE,
+    /** An array of long strings with escapes. */
+    STRINGS,
+    /** An array of numbers with fractions and exponents. */
+    NUMBERS
+  }
+
+  /**
+   * The ways the grammar is run.
+   */
+  public enum Engine {
+    INTERPRETED,
+    OPTIMIZED,
+    ITERATIVE,
+    COMPILED
+  }
+
+  @Param
+  public Shape shape;
+
+  @Param
+  public Engine engine;
+
+  private String document;
+  private Parser<Character, JSONValue> parser;
+
+  @Setup
+  public void setUp() {
+    document = document(shape);
+    Parser<Character, JSONValue> grammar = JSONGrammar.grammar();
+    switch (engine) {
+      case INTERPRETED:
+        parser = grammar;
+        break;
+      case OPTIMIZED:
+        parser = Optimizer.optimize(grammar);
+        break;
+      case ITERATIVE:
+        parser = Parsers.iterative(Optimizer.optimize(grammar));
+        break;
+      default:
+        parser = Parsers.compile(Optimizer.optimize(grammar));
+    }
+    if (Text.parseString(parser, document).isLeft()) {
+      throw new IllegalStateException("Document does not parse: " + shape);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public Either<ParserException, JSONValue> parse() {
+    return Text.parseString(parser, document);
+  }
+
+  /**
+   * Returns a document of exactly SIZE characters: as many elements as fit,
+   * followed by spaces.
+   */
+  static String document(Shape shape) {
+    Random random = new Random(1);
+    switch (shape) {
+      case DEEP:
+        return fill('[', ']', (i) -> nested(32, random.nextInt(100)));
+      case WIDE:
+        return fill(
+            '{', '}', (i) -> "\"key" + i + "\": " + random.nextInt(1000));
+      case STRINGS:
+        return fill('[', ']', (i) -> string(random, 1000));
+      default:
+        return fill('[', ']', (i) -> (random.nextBoolean() ? "-" : "")
+            + random.nextInt(100000) + "." + random.nextInt(1000)
+            + "e" + random.nextInt(10));
+    }
+  }
+
+  private static String fill(
+      char open, char close, IntFunction<String> element) {
+    StringBuilder document = new StringBuilder().append(open);
+    for (int i = 0; ; i++) {
+      String next = (i > 0 ? ", " : "") + element.apply(i);
+      if (document.length() + next.length() + 1 > SIZE) {
+        break;
+      }
+      document.append(next);
+    }
+    document.append(close);
+    while (document.length() < SIZE) {
+      document.append(' ');
+    }
+    return document.toString();
+  }
+
+  private static String nested(int depth, int value) {
+    StringBuilder array = new StringBuilder();
+    for (int i = 0; i < depth; i++) {
+      array.append('[');
+    }
+    array.append(value);
+    for (int i = 0; i < depth; i++) {
+      array.append(']');
+    }
+    return array.toString();
+  }
+
+  private static String string(Random random, int length) {
+    StringBuilder string = new StringBuilder().append('"');
+    for (int i = 0; i < length; i++) {
+      if (random.nextInt(50) == 0) {
+        string.append("\\\"");
+      } else {
+        string.append((char) ('a' + random.nextInt(26)));
+      }
+    }
+    return string.append('"').toString();
+  }
+}
@@ -1,9 +1,15 @@
 package com.parsific;
 
-public interface ArrayLike<E> {
-
-  E get(int index);
+/**
+ * An {@link Input} whose length is known up front.
+ */
+public interface ArrayLike<E> extends Input<E> {
 
   int length();
 
-}
\ No newline at end of file
+  @Override
+  default boolean hasIndex(int index) {
+    return index < length();
+  }
+
+}
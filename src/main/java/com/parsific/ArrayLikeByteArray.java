@@ -0,0 +1,27 @@
+package com.parsific;
+
+import java.nio.ByteBuffer;
+
+public class ArrayLikeByteArray implements ByteInput, ArrayLike<Byte> {
+
+  private final byte[] array;
+
+  public ArrayLikeByteArray(byte[] array) {
+    this.array = array;
+  }
+
+  @Override
+  public byte byteAt(int index) {
+    return array[index];
+  }
+
+  @Override
+  public ByteBuffer slice(int start, int end) {
+    return ByteBuffer.wrap(array, start, end - start).slice();
+  }
+
+  @Override
+  public int length() {
+    return array.length;
+  }
+}
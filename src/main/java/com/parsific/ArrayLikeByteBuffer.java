@@ -0,0 +1,34 @@
+package com.parsific;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link ByteInput} over the remaining bytes of a buffer. Index 0 is the
+ * buffer's position when the input is created. Reads do not move the buffer.
+ */
+public class ArrayLikeByteBuffer implements ByteInput, ArrayLike<Byte> {
+
+  private final ByteBuffer buffer;
+
+  public ArrayLikeByteBuffer(ByteBuffer buffer) {
+    this.buffer = buffer.slice();
+  }
+
+  @Override
+  public byte byteAt(int index) {
+    return buffer.get(index);
+  }
+
+  @Override
+  public ByteBuffer slice(int start, int end) {
+    ByteBuffer view = buffer.duplicate();
+    view.limit(end);
+    view.position(start);
+    return view.slice();
+  }
+
+  @Override
+  public int length() {
+    return buffer.limit();
+  }
+}
@@ -0,0 +1,25 @@
+package com.parsific;
+
+public class ArrayLikeCharArray implements CharInput, ArrayLike<Character> {
+
+  private final char[] array;
+
+  public ArrayLikeCharArray(char[] array) {
+    this.array = array;
+  }
+
+  @Override
+  public char charAt(int index) {
+    return array[index];
+  }
+
+  @Override
+  public String substring(int start, int end) {
+    return new String(array, start, end - start);
+  }
+
+  @Override
+  public int length() {
+    return array.length;
+  }
+}
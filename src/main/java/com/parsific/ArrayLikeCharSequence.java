@@ -0,0 +1,25 @@
+package com.parsific;
+
+public class ArrayLikeCharSequence implements CharInput, ArrayLike<Character> {
+
+  private final CharSequence sequence;
+
+  public ArrayLikeCharSequence(CharSequence sequence) {
+    this.sequence = sequence;
+  }
+
+  @Override
+  public char charAt(int index) {
+    return sequence.charAt(index);
+  }
+
+  @Override
+  public String substring(int start, int end) {
+    return sequence.subSequence(start, end).toString();
+  }
+
+  @Override
+  public int length() {
+    return sequence.length();
+  }
+}
@@ -1,6 +1,6 @@
 package com.parsific;
 
-public class ArrayLikeString implements ArrayLike<Character> {
+public class ArrayLikeString implements CharInput, ArrayLike<Character> {
 
   private final String string;
 
@@ -8,12 +8,18 @@ public class ArrayLikeString implements ArrayLike<Character> {
     this.string = string;  }
 
   @Override
-  public Character get(int index) {
-    return string.charAt(index);  }
+  public char charAt(int index) {
+    return string.charAt(index);
+  }
+
+  @Override
+  public String substring(int start, int end) {
+    return string.substring(start, end);
+  }
 
   @Override
   public int length() {
     return string.length();
   }
   
-}
\ No newline at end of file
+}
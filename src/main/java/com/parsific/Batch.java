@@ -0,0 +1,114 @@
+package com.parsific;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Parses many independent documents with one parser for
+ * {@link Text#parseAll}. One worker per core, counting the calling thread,
+ * claims small blocks of documents in input order and parses them on its own
+ * {@link ParseContext}, so that workers given long documents do not hold up
+ * the rest. Each result is written to the document's slot.
+ */
+final class Batch<T> {
+
+  private static final int MAX_BLOCK = 64;
+
+  private final Parser<Character, T> parser;
+  private final CharSequence[] inputs;
+  private final Either<ParserException, T>[] results;
+  private final boolean stopAtFailure;
+  private final int block;
+  private final AtomicInteger claimed = new AtomicInteger();
+  private final AtomicInteger firstFailure =
+      new AtomicInteger(Integer.MAX_VALUE);
+  private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+  @SuppressWarnings("unchecked")
+  Batch(
+      Parser<Character, T> parser,
+      Collection<? extends CharSequence> inputs,
+      boolean stopAtFailure) {
+    this.parser = parser;
+    this.inputs = inputs.toArray(new CharSequence[0]);
+    this.results = (Either<ParserException, T>[]) new Either<?, ?>[
+        this.inputs.length];
+    this.stopAtFailure = stopAtFailure;
+    this.block = Math.max(1, Math.min(
+        MAX_BLOCK, this.inputs.length / (workers() * 16)));
+  }
+
+  /**
+   * Runs the workers, one of them on the calling thread, and returns the
+   * results in input order. If stopping at the first failure, the results
+   * end with it. A parser that throws stops the batch, and the exception is
+   * rethrown here.
+   */
+  List<Either<ParserException, T>> run(Executor executor) {
+    int workers = Math.min(workers(), (inputs.length + block - 1) / block);
+    CompletableFuture<?>[] tasks = new CompletableFuture<?>[
+        Math.max(0, workers - 1)];
+    int submitted = 0;
+    try {
+      while (submitted < tasks.length) {
+        tasks[submitted] = CompletableFuture.runAsync(this::work, executor);
+        submitted++;
+      }
+    } catch (RejectedExecutionException e) {
+      // The workers that did start, and this thread, parse the rest.
+    }
+    work();
+    CompletableFuture.allOf(Arrays.copyOf(tasks, submitted)).join();
+    Throwable thrown = error.get();
+    if (thrown instanceof Error) {
+      throw (Error) thrown;
+    }
+    if (thrown != null) {
+      throw (RuntimeException) thrown;
+    }
+    int count = stopAtFailure
+        ? Math.min(inputs.length, firstFailure.get() + 1)
+        : inputs.length;
+    return Collections.unmodifiableList(
+        Arrays.asList(results).subList(0, count));
+  }
+
+  private void work() {
+    ParseContext context = new ParseContext();
+    try {
+      for (int start = claimed.getAndAdd(block);
+          start < inputs.length && !stopped(start);
+          start = claimed.getAndAdd(block)) {
+        int end = Math.min(inputs.length, start + block);
+        for (int i = start; i < end && !stopped(i); i++) {
+          results[i] = context.parse(parser, inputs[i]);
+          if (stopAtFailure && results[i].isLeft()) {
+            firstFailure.accumulateAndGet(i, Math::min);
+          }
+        }
+      }
+    } catch (RuntimeException | Error e) {
+      error.compareAndSet(null, e);
+      claimed.set(inputs.length);
+    }
+  }
+
+  /**
+   * True if the document at index need not be parsed, because one before it
+   * failed and the batch stops at the first failure.
+   */
+  private boolean stopped(int index) {
+    return index > firstFailure.get();
+  }
+
+  private static int workers() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+}
@@ -0,0 +1,25 @@
+package com.parsific;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link Input} of bytes whose elements can be read as primitive
+ * bytes. Binary parsers in {@link Bytes} read from a ByteInput without boxing
+ * each byte.
+ */
+public interface ByteInput extends Input<Byte> {
+
+  byte byteAt(int index);
+
+  @Override
+  default Byte get(int index) {
+    return byteAt(index);
+  }
+
+  /**
+   * Returns a view of the bytes from start, inclusive, to end, exclusive. The
+   * view shares the input's storage; nothing is copied.
+   */
+  ByteBuffer slice(int start, int end);
+
+}
@@ -0,0 +1,11 @@
+package com.parsific;
+
+/**
+ * A predicate over primitive bytes, so that testing a byte does not require
+ * boxing it.
+ */
+public interface BytePredicate {
+
+  boolean test(byte b);
+
+}
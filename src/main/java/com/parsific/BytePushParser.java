@@ -0,0 +1,101 @@
+package com.parsific;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A {@link PushParser} over bytes, for binary protocols parsed with
+ * {@link Bytes}.
+ */
+public final class BytePushParser<T> extends PushParser<Byte, T> {
+
+  private final ByteArray input;
+
+  public BytePushParser(Parser<Byte, T> parser) {
+    super(parser);
+    this.input = new ByteArray();
+    attach(input);
+  }
+
+  /**
+   * Appends the chunk to the input and parses; see {@link #resume}.
+   */
+  public Status feed(byte[] chunk) {
+    return feed(chunk, 0, chunk.length);
+  }
+
+  /**
+   * Appends count bytes of the array, from offset, and parses.
+   */
+  public Status feed(byte[] chunk, int offset, int count) {
+    input.reserve(count);
+    System.arraycopy(chunk, offset, input.buffer, input.limit, count);
+    input.limit += count;
+    return resume();
+  }
+
+  /**
+   * Appends the remaining bytes of the buffer, moving its position to its
+   * limit, and parses.
+   */
+  public Status feed(ByteBuffer chunk) {
+    int count = chunk.remaining();
+    input.reserve(count);
+    chunk.get(input.buffer, input.limit, count);
+    input.limit += count;
+    return resume();
+  }
+
+  @Override
+  void discardBefore(int index) {
+    input.discardBefore(index);
+  }
+
+  /**
+   * The bytes fed since the start of the current message.
+   */
+  private final class ByteArray implements ByteInput {
+
+    private byte[] buffer = new byte[64];
+    private int base;
+    private int limit;
+
+    @Override
+    public byte byteAt(int index) {
+      int offset = index - base;
+      if (offset < 0 || offset >= limit) {
+        throw new IndexOutOfBoundsException("Index is not buffered: " + index);
+      }
+      return buffer[offset];
+    }
+
+    @Override
+    public boolean hasIndex(int index) {
+      return index - base < limit || missing();
+    }
+
+    /**
+     * Views are read-only: the buffer is reused for later input.
+     */
+    @Override
+    public ByteBuffer slice(int start, int end) {
+      return ByteBuffer.wrap(buffer, start - base, end - start)
+          .slice()
+          .asReadOnlyBuffer();
+    }
+
+    private void reserve(int count) {
+      if (limit + count > buffer.length) {
+        buffer = Arrays.copyOf(
+            buffer, Math.max(buffer.length * 2, limit + count));
+      }
+    }
+
+    private void discardBefore(int index) {
+      int discard = Math.min(index - base, limit);
+      System.arraycopy(buffer, discard, buffer, 0, limit - discard);
+      base += discard;
+      limit -= discard;
+    }
+  }
+}
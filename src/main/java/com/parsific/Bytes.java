@@ -0,0 +1,322 @@
+package com.parsific;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parsers for binary input, the counterpart of {@link Text}. Bytes are read
+ * from a {@link ByteInput} as primitives, and runs of bytes are returned as
+ * ByteBuffer views of the input rather than copies.
+ *
+ * <p>Multi-byte integers are read big-endian, network order, unless the
+ * method name ends in LE. Unsigned values that do not fit the signed type of
+ * the same width are returned in the next wider type.
+ */
+public final class Bytes {
+
+  /**
+   * The most bytes a 64-bit varint can take.
+   */
+  private static final int MAX_VARINT_LENGTH = 10;
+
+  public static <T> Either<ParserException, T> parseBytes(
+      Parser<Byte, T> parser, byte[] bytes) {
+    return parser.parse(new UnwindingIterator<>(new ArrayLikeByteArray(bytes)));
+  }
+
+  /**
+   * Parses the remaining bytes of the buffer. The buffer's position is not
+   * moved, and views returned by the parser share its storage.
+   */
+  public static <T> Either<ParserException, T> parseBuffer(
+      Parser<Byte, T> parser, ByteBuffer buffer) {
+    return parser.parse(
+        new UnwindingIterator<>(new ArrayLikeByteBuffer(buffer)));
+  }
+
+  /**
+   * Returns a parser that succeeds if the next byte is one of the provided
+   * bytes.
+   */
+  public static Parser<Byte, Byte> anyByte(byte ... bytes) {
+    byte[] copy = bytes.clone();
+    return oneByte((b) -> {
+      for (int i = 0; i < copy.length; i++) {
+        if (copy[i] == b) {
+          return true;
+        }
+      }
+      return false;
+    });
+  }
+
+  public static Parser<Byte, Byte> int8() {
+    return oneByte((b) -> true);
+  }
+
+  public static Parser<Byte, Short> int16() {
+    return ContextParser.of((iterator) -> iterator.hasRemaining(2)
+        ? iterator.succeed((short) readBE(iterator, 2))
+        : iterator.fail());
+  }
+
+  public static Parser<Byte, Short> int16LE() {
+    return ContextParser.of((iterator) -> iterator.hasRemaining(2)
+        ? iterator.succeed((short) readLE(iterator, 2))
+        : iterator.fail());
+  }
+
+  public static Parser<Byte, Integer> int32() {
+    return ContextParser.of((iterator) -> iterator.hasRemaining(4)
+        ? iterator.succeed((int) readBE(iterator, 4))
+        : iterator.fail());
+  }
+
+  public static Parser<Byte, Integer> int32LE() {
+    return ContextParser.of((iterator) -> iterator.hasRemaining(4)
+        ? iterator.succeed((int) readLE(iterator, 4))
+        : iterator.fail());
+  }
+
+  public static Parser<Byte, Long> int64() {
+    return ContextParser.of((iterator) -> iterator.hasRemaining(8)
+        ? iterator.succeed(readBE(iterator, 8))
+        : iterator.fail());
+  }
+
+  public static Parser<Byte, Long> int64LE() {
+    return ContextParser.of((iterator) -> iterator.hasRemaining(8)
+        ? iterator.succeed(readLE(iterator, 8))
+        : iterator.fail());
+  }
+
+  /**
+   * Returns a parser that reads a length with the provided parser, then
+   * returns a view of that many following bytes. The bytes are not copied.
+   */
+  public static Parser<Byte, ByteBuffer> lengthPrefixed(
+      Parser<Byte, ? extends Number> length) {
+    return ContextParser.of((iterator) -> {
+      if (!length.apply(iterator)) {
+        return false;
+      }
+      long count = iterator.<Number>value().longValue();
+      if (count < 0 || count > Integer.MAX_VALUE) {
+        return iterator.fail();
+      }
+      return applySlice(iterator, (int) count);
+    });
+  }
+
+  /**
+   * Returns a parser that always succeeds and returns a view of the bytes
+   * that pass the predicate, accumulated until a byte fails the predicate.
+   * The bytes are not copied.
+   */
+  public static Parser<Byte, ByteBuffer> manyBytes(BytePredicate predicate) {
+    return ContextParser.of((iterator) -> {
+      int start = iterator.nextIndex();
+      skip(iterator, predicate);
+      return iterator.succeed(
+          iterator.byteInput().slice(start, iterator.nextIndex()));
+    });
+  }
+
+  /**
+   * Returns a parser that succeeds if at least the next byte passes the
+   * predicate, and returns a view of the bytes that pass it. The bytes are
+   * not copied.
+   */
+  public static Parser<Byte, ByteBuffer> many1Bytes(BytePredicate predicate) {
+    return ContextParser.of((iterator) -> {
+      int start = iterator.nextIndex();
+      if (skip(iterator, predicate) == start) {
+        return iterator.fail();
+      }
+      return iterator.succeed(
+          iterator.byteInput().slice(start, iterator.nextIndex()));
+    });
+  }
+
+  /**
+   * Returns a parser that succeeds if the next bytes are equal to the
+   * provided bytes, and returns a view of them.
+   */
+  public static Parser<Byte, ByteBuffer> match(byte ... bytes) {
+    byte[] copy = bytes.clone();
+    return ContextParser.of((iterator) -> {
+      int start = iterator.nextIndex();
+      for (int i = 0; i < copy.length; i++) {
+        if (!iterator.hasNext() || iterator.peekByte() != copy[i]) {
+          return iterator.fail();
+        }
+        iterator.nextByte();
+      }
+      return iterator.succeed(
+          iterator.byteInput().slice(start, iterator.nextIndex()));
+    });
+  }
+
+  /**
+   * Returns a parser that succeeds if the next byte is equal to the provided
+   * byte.
+   */
+  public static Parser<Byte, Byte> oneByte(byte b) {
+    return oneByte(b2 -> b2 == b);
+  }
+
+  /**
+   * Returns a parser that succeeds if the next byte passes the provided
+   * predicate. The byte is tested without being boxed.
+   */
+  public static Parser<Byte, Byte> oneByte(BytePredicate predicate) {
+    return ContextParser.of((iterator) -> {
+      if (iterator.hasNext() && predicate.test(iterator.peekByte())) {
+        return iterator.succeed(iterator.nextByte());
+      }
+      return iterator.fail();
+    });
+  }
+
+  /**
+   * Returns a parser that reads a zigzag-encoded signed varint, as used for
+   * the sint types of Protocol Buffers.
+   */
+  public static Parser<Byte, Long> signedVarint() {
+    return ContextParser.of((iterator) -> {
+      if (!applyVarint(iterator)) {
+        return false;
+      }
+      long encoded = iterator.<Long>value();
+      return iterator.succeed((encoded >>> 1) ^ -(encoded & 1));
+    });
+  }
+
+  /**
+   * Returns a parser that skips the bytes that pass the predicate and always
+   * succeeds with a null value, so that nothing is allocated.
+   */
+  public static Parser<Byte, Void> skipBytes(BytePredicate predicate) {
+    return ContextParser.of((iterator) -> {
+      skip(iterator, predicate);
+      return iterator.succeed(null);
+    });
+  }
+
+  /**
+   * Returns a parser that returns a view of the next length bytes, and fails
+   * if fewer remain. The bytes are not copied.
+   */
+  public static Parser<Byte, ByteBuffer> slice(int length) {
+    if (length < 0) {
+      throw new IllegalArgumentException("Length must not be negative.");
+    }
+    return ContextParser.of((iterator) -> applySlice(iterator, length));
+  }
+
+  public static Parser<Byte, Integer> uint8() {
+    return ContextParser.of((iterator) -> iterator.hasNext()
+        ? iterator.succeed(iterator.nextByte() & 0xFF)
+        : iterator.fail());
+  }
+
+  public static Parser<Byte, Integer> uint16() {
+    return ContextParser.of((iterator) -> iterator.hasRemaining(2)
+        ? iterator.succeed((int) readBE(iterator, 2))
+        : iterator.fail());
+  }
+
+  public static Parser<Byte, Integer> uint16LE() {
+    return ContextParser.of((iterator) -> iterator.hasRemaining(2)
+        ? iterator.succeed((int) readLE(iterator, 2))
+        : iterator.fail());
+  }
+
+  public static Parser<Byte, Long> uint32() {
+    return ContextParser.of((iterator) -> iterator.hasRemaining(4)
+        ? iterator.succeed(readBE(iterator, 4))
+        : iterator.fail());
+  }
+
+  public static Parser<Byte, Long> uint32LE() {
+    return ContextParser.of((iterator) -> iterator.hasRemaining(4)
+        ? iterator.succeed(readLE(iterator, 4))
+        : iterator.fail());
+  }
+
+  /**
+   * Returns a parser that reads an unsigned LEB128 varint of up to 64 bits,
+   * as used by Protocol Buffers. Fails at the first byte if the varint is
+   * truncated or longer than ten bytes.
+   */
+  public static Parser<Byte, Long> varint() {
+    return ContextParser.of(Bytes::applyVarint);
+  }
+
+  private static boolean applySlice(
+      UnwindingIterator<Byte> iterator, int length) {
+    if (!iterator.hasRemaining(length)) {
+      return iterator.fail();
+    }
+    int start = iterator.nextIndex();
+    iterator.reset(start + length);
+    return iterator.succeed(iterator.byteInput().slice(start, start + length));
+  }
+
+  private static boolean applyVarint(UnwindingIterator<Byte> iterator) {
+    int start = iterator.nextIndex();
+    long value = 0;
+    for (int i = 0; i < MAX_VARINT_LENGTH; i++) {
+      if (!iterator.hasNext()) {
+        iterator.reset(start);
+        return iterator.fail();
+      }
+      byte b = iterator.nextByte();
+      if (i == MAX_VARINT_LENGTH - 1 && (b & 0x7E) != 0) {
+        // The last byte holds only bit 63; more would overflow a long.
+        break;
+      }
+      value |= (long) (b & 0x7F) << (7 * i);
+      if (b >= 0) {
+        return iterator.succeed(value);
+      }
+    }
+    iterator.reset(start);
+    return iterator.fail();
+  }
+
+  /**
+   * Reads width bytes, most significant first, zero-extended. The caller
+   * checks that they remain.
+   */
+  private static long readBE(UnwindingIterator<Byte> iterator, int width) {
+    long value = 0;
+    for (int i = 0; i < width; i++) {
+      value = (value << 8) | (iterator.nextByte() & 0xFF);
+    }
+    return value;
+  }
+
+  /**
+   * Reads width bytes, least significant first, zero-extended. The caller
+   * checks that they remain.
+   */
+  private static long readLE(UnwindingIterator<Byte> iterator, int width) {
+    long value = 0;
+    for (int i = 0; i < width; i++) {
+      value |= (long) (iterator.nextByte() & 0xFF) << (8 * i);
+    }
+    return value;
+  }
+
+  /**
+   * Advances past the bytes that pass the predicate. Returns the index of the
+   * first byte that does not.
+   */
+  private static int skip(
+      UnwindingIterator<Byte> iterator, BytePredicate predicate) {
+    while (iterator.hasNext() && predicate.test(iterator.peekByte())) {
+      iterator.nextByte();
+    }
+    return iterator.nextIndex();
+  }
+}
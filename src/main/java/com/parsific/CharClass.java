@@ -0,0 +1,218 @@
+package com.parsific;
+
+import java.util.Arrays;
+
+/**
+ * A compiled set of characters. Membership of a Latin-1 character is a single
+ * bitmap lookup; other characters are found by binary search over a sorted
+ * list of ranges. Classes are immutable and combine by union and negation.
+ */
+public final class CharClass implements CharPredicate {
+
+  private static final int BITMAP_SIZE = 256;
+
+  public static final CharClass DIGIT = matching(Character::isDigit);
+
+  public static final CharClass LETTER = matching(Character::isAlphabetic);
+
+  public static final CharClass WHITESPACE = matching(Character::isWhitespace);
+
+  /**
+   * Returns the class containing no characters.
+   */
+  public static CharClass none() {
+    return new CharClass(new int[0]);
+  }
+
+  /**
+   * Returns the class containing the provided characters.
+   */
+  public static CharClass of(char ... chars) {
+    char[] sorted = Arrays.copyOf(chars, chars.length);
+    Arrays.sort(sorted);
+    int[] ranges = new int[sorted.length * 2];
+    int count = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (count > 0 && sorted[i] <= ranges[count - 1] + 1) {
+        ranges[count - 1] = Math.max(ranges[count - 1], sorted[i]);
+      } else {
+        ranges[count++] = sorted[i];
+        ranges[count++] = sorted[i];
+      }
+    }
+    return new CharClass(Arrays.copyOf(ranges, count));
+  }
+
+  /**
+   * Returns the class containing the characters of the provided string.
+   */
+  public static CharClass of(String chars) {
+    return of(chars.toCharArray());
+  }
+
+  /**
+   * Returns the class containing every character from first to last,
+   * inclusive.
+   */
+  public static CharClass range(char first, char last) {
+    if (first > last) {
+      throw new IllegalArgumentException(
+          "Range is empty: " + first + " > " + last);
+    }
+    return new CharClass(new int[] {first, last});
+  }
+
+  /**
+   * Returns the class of characters that pass the predicate. Every character
+   * is tested once, so this is meant for building constants.
+   */
+  public static CharClass matching(CharPredicate predicate) {
+    int[] ranges = new int[16];
+    int count = 0;
+    for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+      if (!predicate.test((char) c)) {
+        continue;
+      }
+      if (count > 0 && ranges[count - 1] == c - 1) {
+        ranges[count - 1] = c;
+      } else {
+        if (count == ranges.length) {
+          ranges = Arrays.copyOf(ranges, count * 2);
+        }
+        ranges[count++] = c;
+        ranges[count++] = c;
+      }
+    }
+    return new CharClass(Arrays.copyOf(ranges, count));
+  }
+
+  /**
+   * Returns the class with the provided ranges, as returned by
+   * {@link #ranges}.
+   */
+  static CharClass ofRanges(int[] ranges) {
+    return new CharClass(ranges.clone());
+  }
+
+  private final long[] bitmap;
+  private final int[] ranges;
+
+  /**
+   * Ranges holds sorted, disjoint, non-adjacent pairs of inclusive bounds.
+   */
+  private CharClass(int[] ranges) {
+    this.ranges = ranges;
+    this.bitmap = new long[BITMAP_SIZE / 64];
+    for (int i = 0; i < ranges.length; i += 2) {
+      for (int c = ranges[i]; c <= ranges[i + 1] && c < BITMAP_SIZE; c++) {
+        bitmap[c >>> 6] |= 1L << c;
+      }
+    }
+  }
+
+  /**
+   * The sorted, disjoint pairs of inclusive bounds of the characters in this
+   * class.
+   */
+  int[] ranges() {
+    return ranges.clone();
+  }
+
+  /**
+   * The only character in this class, or -1 if it holds any other number of
+   * characters.
+   */
+  int singleChar() {
+    return ranges.length == 2 && ranges[0] == ranges[1] ? ranges[0] : -1;
+  }
+
+  @Override
+  public boolean test(char c) {
+    if (c < BITMAP_SIZE) {
+      return (bitmap[c >>> 6] & (1L << c)) != 0;
+    }
+    int low = 0;
+    int high = ranges.length / 2 - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (c < ranges[middle * 2]) {
+        high = middle - 1;
+      } else if (c > ranges[middle * 2 + 1]) {
+        low = middle + 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * True if a character is in both this class and the other.
+   */
+  public boolean intersects(CharClass other) {
+    int i = 0;
+    int j = 0;
+    while (i < ranges.length && j < other.ranges.length) {
+      if (ranges[i + 1] < other.ranges[j]) {
+        i += 2;
+      } else if (other.ranges[j + 1] < ranges[i]) {
+        j += 2;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the class of characters not in this class.
+   */
+  public CharClass negate() {
+    int[] negated = new int[ranges.length + 2];
+    int count = 0;
+    int next = Character.MIN_VALUE;
+    for (int i = 0; i < ranges.length; i += 2) {
+      if (ranges[i] > next) {
+        negated[count++] = next;
+        negated[count++] = ranges[i] - 1;
+      }
+      next = ranges[i + 1] + 1;
+    }
+    if (next <= Character.MAX_VALUE) {
+      negated[count++] = next;
+      negated[count++] = Character.MAX_VALUE;
+    }
+    return new CharClass(Arrays.copyOf(negated, count));
+  }
+
+  /**
+   * Returns the class of characters in this class or the other.
+   */
+  public CharClass union(CharClass other) {
+    int[] merged = new int[ranges.length + other.ranges.length];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < ranges.length || j < other.ranges.length) {
+      int first;
+      int last;
+      if (j >= other.ranges.length
+          || (i < ranges.length && ranges[i] <= other.ranges[j])) {
+        first = ranges[i];
+        last = ranges[i + 1];
+        i += 2;
+      } else {
+        first = other.ranges[j];
+        last = other.ranges[j + 1];
+        j += 2;
+      }
+      if (count > 0 && first <= merged[count - 1] + 1) {
+        merged[count - 1] = Math.max(merged[count - 1], last);
+      } else {
+        merged[count++] = first;
+        merged[count++] = last;
+      }
+    }
+    return new CharClass(Arrays.copyOf(merged, count));
+  }
+}
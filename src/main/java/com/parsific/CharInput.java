@@ -0,0 +1,27 @@
+package com.parsific;
+
+/**
+ * An {@link Input} of characters whose elements can be read as primitive
+ * chars. Text parsers read from a CharInput without boxing each character.
+ */
+public interface CharInput extends Input<Character> {
+
+  char charAt(int index);
+
+  @Override
+  default Character get(int index) {
+    return charAt(index);
+  }
+
+  /**
+   * Returns the characters from start, inclusive, to end, exclusive.
+   */
+  default String substring(int start, int end) {
+    StringBuilder builder = new StringBuilder(end - start);
+    for (int i = start; i < end; i++) {
+      builder.append(charAt(i));
+    }
+    return builder.toString();
+  }
+
+}
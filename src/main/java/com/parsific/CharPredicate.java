@@ -0,0 +1,11 @@
+package com.parsific;
+
+/**
+ * A predicate over primitive chars, so that testing a character does not
+ * require boxing it.
+ */
+public interface CharPredicate {
+
+  boolean test(char c);
+
+}
@@ -0,0 +1,86 @@
+package com.parsific;
+
+import java.util.Arrays;
+
+/**
+ * A {@link PushParser} over characters.
+ */
+public final class CharPushParser<T> extends PushParser<Character, T> {
+
+  private final Chars input;
+
+  public CharPushParser(Parser<Character, T> parser) {
+    super(parser);
+    this.input = new Chars();
+    attach(input);
+  }
+
+  /**
+   * Appends the chunk to the input and parses; see {@link #resume}.
+   */
+  public Status feed(CharSequence chunk) {
+    input.reserve(chunk.length());
+    for (int i = 0; i < chunk.length(); i++) {
+      input.buffer[input.limit++] = chunk.charAt(i);
+    }
+    return resume();
+  }
+
+  /**
+   * Appends count chars of the array, from offset, and parses.
+   */
+  public Status feed(char[] chunk, int offset, int count) {
+    input.reserve(count);
+    System.arraycopy(chunk, offset, input.buffer, input.limit, count);
+    input.limit += count;
+    return resume();
+  }
+
+  @Override
+  void discardBefore(int index) {
+    input.discardBefore(index);
+  }
+
+  /**
+   * The characters fed since the start of the current message.
+   */
+  private final class Chars implements CharInput {
+
+    private char[] buffer = new char[64];
+    private int base;
+    private int limit;
+
+    @Override
+    public char charAt(int index) {
+      int offset = index - base;
+      if (offset < 0 || offset >= limit) {
+        throw new IndexOutOfBoundsException("Index is not buffered: " + index);
+      }
+      return buffer[offset];
+    }
+
+    @Override
+    public boolean hasIndex(int index) {
+      return index - base < limit || missing();
+    }
+
+    @Override
+    public String substring(int start, int end) {
+      return new String(buffer, start - base, end - start);
+    }
+
+    private void reserve(int count) {
+      if (limit + count > buffer.length) {
+        buffer = Arrays.copyOf(
+            buffer, Math.max(buffer.length * 2, limit + count));
+      }
+    }
+
+    private void discardBefore(int index) {
+      int discard = Math.min(index - base, limit);
+      System.arraycopy(buffer, discard, buffer, 0, limit - discard);
+      base += discard;
+      limit -= discard;
+    }
+  }
+}
@@ -2,62 +2,83 @@ package com.parsific;
 
 import java.util.LinkedList;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public final class Combinators {
 
+  /**
+   * Distance, in tokens behind the committed offset, that memoized results
+   * are kept for when no table has been configured.
+   */
+  public static final int DEFAULT_MEMO_WINDOW = 4096;
+
+  private static final AtomicInteger memoRules = new AtomicInteger();
+
+  /**
+   * The functions of maybe and seperatedBy. They are shared, rather than
+   * created per grammar, so that generated code can refer to them; see
+   * {@link CompiledParser}.
+   */
+  static final Function<Object, Optional<Object>> SOME = Optional::of;
+
+  static final BiFunction<Object, LinkedList<Object>, LinkedList<Object>>
+      PREPEND = (first, list) -> {
+        list.addFirst(first);
+        return list;
+      };
+
+  @SuppressWarnings("unchecked")
   public static <A, B, S, T> Parser<S, T> and(
       BiFunction<A, B, T> f, Parser<S, A> aParser, Parser<S, B> bParser) {
-    return (iterator) -> {
-      Either<ParserException, A> aResult = aParser.parse(iterator);
-      Either<ParserException, B> bResult = bParser.parse(iterator);
-      return checkForFailureAndException(
-        iterator.nextIndex(),
-        () -> f.apply(aResult.right(), bResult.right()),
-        aResult, bResult);
-    };
+    Parser<S, ?>[] children = newParsers(2);
+    children[0] = aParser;
+    children[1] = bParser;
+    return new Node.Sequence<>(
+        f,
+        (results) -> f.apply((A) results[0], (B) results[1]),
+        children);
   }
 
+  @SuppressWarnings("unchecked")
   public static <A, B, C, S, T> Parser<S, T> and(
       TriFunction<A, B, C, T> f,
       Parser<S, A> aParser,
       Parser<S, B> bParser,
       Parser<S, C> cParser) {
-    return (iterator) -> {
-      Either<ParserException, A> aResult = aParser.parse(iterator);
-      Either<ParserException, B> bResult = bParser.parse(iterator);
-      Either<ParserException, C> cResult = cParser.parse(iterator);
-      return checkForFailureAndException(
-        iterator.nextIndex(),
-        () -> f.apply(aResult.right(), bResult.right(), cResult.right()),
-        aResult, bResult, cResult);
-    };
+    Parser<S, ?>[] children = newParsers(3);
+    children[0] = aParser;
+    children[1] = bParser;
+    children[2] = cParser;
+    return new Node.Sequence<>(
+        f,
+        (results) -> f.apply((A) results[0], (B) results[1], (C) results[2]),
+        children);
   }
 
+  @SuppressWarnings("unchecked")
   public static <A, B, C, D, S, T> Parser<S, T> and(
       QuadFunction<A, B, C, D, T> f,
       Parser<S, A> aParser,
       Parser<S, B> bParser,
       Parser<S, C> cParser,
       Parser<S, D> dParser) {
-    return (iterator) -> {
-      Either<ParserException, A> aResult = aParser.parse(iterator);
-      Either<ParserException, B> bResult = bParser.parse(iterator);
-      Either<ParserException, C> cResult = cParser.parse(iterator);
-      Either<ParserException, D> dResult = dParser.parse(iterator);
-      return checkForFailureAndException(
-        iterator.nextIndex(),
-        () -> f.apply(
-            aResult.right(),
-            bResult.right(),
-            cResult.right(),
-            dResult.right()),
-        aResult, bResult, cResult, dResult);
-    };
+    Parser<S, ?>[] children = newParsers(4);
+    children[0] = aParser;
+    children[1] = bParser;
+    children[2] = cParser;
+    children[3] = dParser;
+    return new Node.Sequence<>(
+        f,
+        (results) -> f.apply(
+            (A) results[0], (B) results[1], (C) results[2], (D) results[3]),
+        children);
   }
 
+  @SuppressWarnings("unchecked")
   public static <A, B, C, D, E, S, T> Parser<S, T> and(
       QuintFunction<A, B, C, D, E, T> f,
       Parser<S, A> aParser,
@@ -65,53 +86,64 @@ public final class Combinators {
       Parser<S, C> cParser,
       Parser<S, D> dParser,
       Parser<S, E> eParser) {
-    return (iterator) -> {
-      Either<ParserException, A> aResult = aParser.parse(iterator);
-      Either<ParserException, B> bResult = bParser.parse(iterator);
-      Either<ParserException, C> cResult = cParser.parse(iterator);
-      Either<ParserException, D> dResult = dParser.parse(iterator);
-      Either<ParserException, E> eResult = eParser.parse(iterator);
-      return checkForFailureAndException(
-        iterator.nextIndex(),
-        () -> f.apply(
-            aResult.right(),
-            bResult.right(),
-            cResult.right(),
-            dResult.right(),
-            eResult.right()),
-        aResult, bResult, cResult, dResult, eResult);
-    };
+    Parser<S, ?>[] children = newParsers(5);
+    children[0] = aParser;
+    children[1] = bParser;
+    children[2] = cParser;
+    children[3] = dParser;
+    children[4] = eParser;
+    return new Node.Sequence<>(
+        f,
+        (results) -> f.apply(
+            (A) results[0],
+            (B) results[1],
+            (C) results[2],
+            (D) results[3],
+            (E) results[4]),
+        children);
+  }
+
+  /**
+   * Returns a parser that runs prefix and then parser, returning the result
+   * of parser, with a {@link #cut} between them: once prefix has matched, a
+   * failure of parser fails the nearest enclosing or or repetition rather
+   * than making it try other alternatives.
+   */
+  @SuppressWarnings("unchecked")
+  public static <S, T> Parser<S, T> commit(
+      Parser<S, ?> prefix, Parser<S, T> parser) {
+    return dropLeft(parser, prefix, cut());
+  }
+
+  /**
+   * Returns a parser that succeeds without reading input and commits the
+   * nearest enclosing or or repetition to the current position. When a
+   * parser after it fails, that or or repetition fails at once instead of
+   * backtracking, so an error is reported where it happened and nothing is
+   * parsed again; parsers enclosing it may still try other alternatives.
+   * The backtrack points it made are released, so a {@link StreamingInput}
+   * may discard what has been read once no enclosing parser can backtrack.
+   * Results replayed by {@link #memo} or in packrat mode cut again if they
+   * cut the first time.
+   */
+  public static <S> Parser<S, Void> cut() {
+    return new Node.Cut<>();
   }
 
   public static <S, T> Parser<S, T> dropLeft(
       Parser<S, T> main, Parser<S, ?> ... drop) {
-    return (iterator) -> {
-      for (int i = 0; i < drop.length; i++) {
-        Either<ParserException, ?> dropResult = drop[i].parse(iterator);
-        if (dropResult.isLeft()) {
-          return Either.left(dropResult.left());
-        }
-      }
-
-      return main.parse(iterator);
-    };
+    Parser<S, ?>[] children = newParsers(drop.length + 1);
+    System.arraycopy(drop, 0, children, 0, drop.length);
+    children[drop.length] = main;
+    return new Node.Sequence<>(drop.length, children);
   }
 
   public static <S, T> Parser<S, T> dropRight(
       Parser<S, T> main, Parser<S, ?> ... drop) {
-    return (iterator) -> {
-      Either<ParserException, T> result = main.parse(iterator);
-      if (result.isLeft()) {
-        return result;
-      }
-      for (int i = 0; i < drop.length; i++) {
-        Either<ParserException, ?> dropResult = drop[i].parse(iterator);
-        if (dropResult.isLeft()) {
-          return Either.left(dropResult.left());
-        }
-      }
-      return result;
-    };
+    Parser<S, ?>[] children = newParsers(drop.length + 1);
+    children[0] = main;
+    System.arraycopy(drop, 0, children, 1, drop.length);
+    return new Node.Sequence<>(0, children);
   }
 
   public static <S, T> Parser<S, T> dropBoth(
@@ -125,11 +157,7 @@ public final class Combinators {
   }
 
   public static <S> Parser<S, EOF> end() {
-    return (iterator) -> {
-      return iterator.hasNext()
-          ? Either.left(new ParserException(iterator.nextIndex()))
-          : Either.right(EOF.instance);
-    };
+    return new Node.End<>();
   }
 
   /**
@@ -138,19 +166,12 @@ public final class Combinators {
    * provided parser fails, this parser will return an empty Optional. This
    * parser ensures that the iterator pointer is not updated on failure.
    */
+  @SuppressWarnings("unchecked")
   public static <S, T> Parser<S, Optional<T>> maybe(
       final Parser<S, T> parser) {
-    return (iterator) -> {
-      iterator.wind();
-      Either<ParserException, T> result = parser.parse(iterator);
-      if (result.isRight()) {
-        iterator.clearWind();
-        return Either.right(Optional.of(result.right()));
-      } else {
-        iterator.unwind();
-        return Either.right(Optional.empty());
-      }
-    };
+    Function<T, Optional<T>> some =
+        (Function<T, Optional<T>>) (Function<?, ?>) SOME;
+    return or(map(parser, some), pure(Optional.<T>empty()));
   }
 
   /**
@@ -158,80 +179,111 @@ public final class Combinators {
    */
   public static <S, T, U> Parser<S, U> map(
       Parser<S, T> parser, Function<T, U> f) {
-    return (iterator) -> {
-      Either<ParserException, T> result = parser.parse(iterator);
-      return checkForFailureAndException(
-          iterator.nextIndex(), () -> f.apply(result.right()), result);
-    };
+    return new Node.Map<>(parser, f);
+  }
+
+  /**
+   * Returns a parser that caches the result of the provided parser by input
+   * offset, so that running it again at the same offset, after backtracking,
+   * does not reparse. Results are kept in the iterator's {@link MemoTable}; a
+   * windowed table is installed if the iterator has none. Cached values are
+   * shared between hits, so they must not be mutated.
+   */
+  public static <S, T> Parser<S, T> memo(Parser<S, T> parser) {
+    return new Node.Memo<>(parser);
   }
 
   /**
    * Attempt the provided parsers in order until one succeeds. This parser fails
-   * if none of the parsers pass. The iterator is reset after each fail.
+   * if none of the parsers pass. The iterator is reset after each fail. In
+   * packrat mode each alternative is memoized.
    */
   public static <S, T> Parser<S, T> or(Parser<S, T> ... parsers) {
-    return (iterator) -> {
-      for (int i = 0; i < parsers.length; i++) {
-        Either<ParserException, T> result = parsers[i].parse(iterator.wind());
-        if (result.isRight()) {
-          iterator.clearWind();
-          return result;
-        }
-        iterator.unwind();
-      }
-      return Either.left(new ParserException(iterator.nextIndex()));
-    };
+    return new Node.Choice<>(parsers);
   }
 
+  /**
+   * Returns a parser that returns the result of the provided parser, or the
+   * default value if it fails. The iterator is reset if the parser fails.
+   */
+  @SuppressWarnings("unchecked")
   public static <S, T> Parser<S, T> orDefault(
       Parser<S, T> parser, T defaultValue) {
-    return (iterator) -> {
-      Either<ParserException, T> result = parser.parse(iterator);
-      return result.isRight() ? result : Either.right(defaultValue);
-    };
+    Parser<S, ?>[] alternatives = newParsers(2);
+    alternatives[0] = parser;
+    alternatives[1] = pure(defaultValue);
+    return new Node.Choice<>((Parser<S, T>[]) alternatives);
+  }
+
+  /**
+   * Runs the provided parser in packrat mode, memoizing every alternative of
+   * every or it reaches with a windowed {@link MemoTable}.
+   */
+  public static <S, T> Parser<S, T> packrat(Parser<S, T> parser) {
+    return packrat(parser, () -> MemoTable.window(DEFAULT_MEMO_WINDOW));
+  }
+
+  /**
+   * Runs the provided parser in packrat mode, memoizing every alternative of
+   * every or it reaches. A table is taken from the supplier for each parse,
+   * which sets the eviction policy.
+   */
+  public static <S, T> Parser<S, T> packrat(
+      Parser<S, T> parser, Supplier<MemoTable> tables) {
+    return new Node.Packrat<>(parser, tables);
+  }
+
+  /**
+   * Returns a parser that succeeds with the provided value without reading
+   * any input.
+   */
+  public static <S, T> Parser<S, T> pure(T value) {
+    return new Node.Pure<>(value);
   }
 
   public static <S, T> Parser<S, LinkedList<T>> seperatedBy(
       Parser<S, T> parser, S delimiter) {
-    Parser<S, T> seperatedParser = and(
-      (delim, entry) -> entry, Parsers.one(delimiter), parser);
-    BiFunction<T, LinkedList<T>, LinkedList<T>> prependF = (first, list) -> {
-      list.addFirst(first);
-      return list;
-    };
-    return and(prependF, parser, Parsers.manyParser(seperatedParser));
+    return seperatedBy(parser, Parsers.one(delimiter));
   }
 
-  interface Callable<T> {
-    T call();
+  @SuppressWarnings("unchecked")
+  public static <S, T> Parser<S, LinkedList<T>> seperatedBy(
+      Parser<S, T> parser, Parser<S, ?> delimiter) {
+    Parser<S, T> seperatedParser = dropLeft(parser, delimiter);
+    BiFunction<T, LinkedList<T>, LinkedList<T>> prependF =
+        (BiFunction<T, LinkedList<T>, LinkedList<T>>)
+            (BiFunction<?, ?, ?>) PREPEND;
+    return and(prependF, parser, Parsers.manyParser(seperatedParser));
   }
 
-  private static Optional<ParserException> checkForFailure(
-      Either<ParserException, ?> ... eithers) {
-    for (int i = 0; i < eithers.length; i++) {
-      if (eithers[i].isLeft()) {
-        return Optional.of(eithers[i].left());
-      }
+  /**
+   * Runs the provided parsers in order and applies the function to their
+   * results. Unlike and, the number of parsers is not limited; the results
+   * are passed in a fresh array, in the order of the parsers. Stops at the
+   * first parser that fails.
+   */
+  @SafeVarargs
+  public static <S, T> Parser<S, T> seq(
+      Function<Object[], T> f, Parser<S, ?> ... parsers) {
+    Parser<S, ?>[] children = newParsers(parsers.length);
+    for (int i = 0; i < parsers.length; i++) {
+      // Copied one by one, so that the varargs array does not escape.
+      children[i] = parsers[i];
     }
-    return Optional.empty();
+    return new Node.Sequence<>(f, children);
   }
 
-  private static <S> Either<ParserException, S> checkForException(
-      int iteratorIndex, Callable<S> callable) {
-    try {
-      return Either.right(callable.call());
-    } catch (Exception e) {
-      return Either.left(new ParserException(iteratorIndex));
-    }
+  /**
+   * Returns the first of count consecutive ids for new rules in
+   * {@link MemoTable} keys.
+   */
+  static int newRules(int count) {
+    return memoRules.getAndAdd(count);
   }
 
-  private static <T> Either<ParserException, T> checkForFailureAndException(
-      int iteratorIndex, Callable<T> callable, Either<ParserException, ?> ... eithers) {
-    Optional<ParserException> optFailure = checkForFailure(eithers);
-    if (optFailure.isPresent()) {
-      return Either.left(optFailure.get());
-    }
-    return checkForException(iteratorIndex, callable);
+  @SuppressWarnings("unchecked")
+  private static <S> Parser<S, ?>[] newParsers(int length) {
+    return (Parser<S, ?>[]) new Parser<?, ?>[length];
   }
 
   static class EOF {
@@ -0,0 +1,82 @@
+package com.parsific;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The base class of the parsers generated for a grammar by
+ * {@link Parsers#compile} and {@link GrammarGenerator}. Generated classes
+ * live outside this package, so the few values and operations they need that
+ * are not public are provided here.
+ */
+public abstract class CompiledParser<S, T> implements ContextParser<S, T> {
+
+  /**
+   * The value of {@link Combinators#end}.
+   */
+  protected static final Object EOF = Combinators.EOF.instance;
+
+  /**
+   * The functions the library's own combinators build grammars with.
+   */
+  protected static final Function<?, ?> SOME = Combinators.SOME;
+
+  protected static final BiFunction<?, ?, ?> PREPEND = Combinators.PREPEND;
+
+  protected static final Function<?, ?> CHAR_TO_STRING = Text.CHAR_TO_STRING;
+
+  protected static final Function<?, ?> TO_LIST = Parsers.TO_LIST;
+
+  protected CompiledParser() {}
+
+  /**
+   * Returns the class of the characters in the provided ranges: sorted,
+   * disjoint pairs of inclusive bounds.
+   */
+  protected static CharClass charClass(int ... ranges) {
+    return CharClass.ofRanges(ranges);
+  }
+
+  /**
+   * True if the iterator is parsing in packrat mode; see
+   * {@link Combinators#packrat}.
+   */
+  protected static boolean isPackrat(UnwindingIterator<?> iterator) {
+    return iterator.isPackrat();
+  }
+
+  /**
+   * True if the iterator is push parsing; see {@link PushParser}.
+   */
+  protected static boolean isPushParsing(UnwindingIterator<?> iterator) {
+    return iterator.checkpoints() != null;
+  }
+
+  /**
+   * The profiler of the parse, or null if it is not being profiled; see
+   * {@link Parsers#named}.
+   */
+  protected static Profiler profiler(UnwindingIterator<?> iterator) {
+    return iterator.profiler();
+  }
+
+  protected static void enter(
+      Profiler profiler, String name, UnwindingIterator<?> iterator) {
+    profiler.enter(name, iterator.nextIndex());
+  }
+
+  protected static void exit(
+      Profiler profiler, UnwindingIterator<?> iterator, boolean success) {
+    profiler.exit(iterator, success);
+  }
+
+  protected static Span span(
+      UnwindingIterator<Character> iterator, int start, int end) {
+    return new Span(iterator.charInput(), start, end);
+  }
+
+  protected static String substring(
+      UnwindingIterator<Character> iterator, int start, int end) {
+    return iterator.charInput().substring(start, end);
+  }
+}
@@ -0,0 +1,30 @@
+package com.parsific;
+
+/**
+ * A parser written against the low-allocation result protocol. Rather than
+ * returning an {@link Either}, it reports success as a boolean and leaves the
+ * parsed value or the failure index on the iterator, so that nothing is
+ * allocated for a result unless the parser itself builds one. {@link #parse}
+ * adapts the outcome to an Either for callers of the {@link Parser} API.
+ */
+public interface ContextParser<S, T> extends Parser<S, T> {
+
+  /**
+   * Returns the provided parser. Lets a lambda be written against apply where
+   * a {@link Parser} is expected.
+   */
+  static <S, T> ContextParser<S, T> of(ContextParser<S, T> parser) {
+    return parser;
+  }
+
+  @Override
+  boolean apply(UnwindingIterator<S> iterator);
+
+  @Override
+  default Either<ParserException, T> parse(UnwindingIterator<S> iterator) {
+    return apply(iterator)
+        ? Either.right(iterator.value())
+        : Either.left(iterator.failure());
+  }
+
+}
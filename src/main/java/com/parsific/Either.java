@@ -2,37 +2,47 @@ package com.parsific;
 
 import java.util.Optional;
 
+/**
+ * The result of a parse at the public entry points. Parsers report their
+ * results on the iterator, so one Either is built per public parse call.
+ */
 public final class Either<L, R> {
 
   public static <L, R> Either<L, R> left(L left) {
-    return new Either<>(Optional.of(left), Optional.empty());
+    return new Either<>(Optional.ofNullable(left), Optional.empty(), false);
   }
 
   public static <L, R> Either<L, R> right(R right) {
-    return new Either<>(Optional.empty(), Optional.of(right));
+    return new Either<>(Optional.empty(), Optional.ofNullable(right), true);
   }
-  
+
   public final Optional<L> left;
   public final Optional<R> right;
+  private final boolean isRight;
 
-  private Either(Optional<L> optLeft, Optional<R> optRight) {
+  private Either(Optional<L> optLeft, Optional<R> optRight, boolean isRight) {
     this.left = optLeft;
     this.right = optRight;
+    this.isRight = isRight;
   }
 
   public boolean isLeft() {
-    return left.isPresent();
+    return !isRight;
   }
 
+  /**
+   * True for a successful result, even one whose value is null, which
+   * leaves {@link #right} empty.
+   */
   public boolean isRight() {
-    return right.isPresent();
+    return isRight;
   }
 
   public L left() {
-    return isLeft() ? left.get() : null;
+    return left.orElse(null);
   }
 
   public R right() {
-    return isRight() ? right.get() : null;
+    return right.orElse(null);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,205 @@
+package com.parsific;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles the source written by {@link GrammarEmitter} in memory with the
+ * system Java compiler and loads it with a class loader of its own, so that
+ * the class can be unloaded with the parser.
+ */
+final class GrammarCompiler {
+
+  private static final String PACKAGE = "com.parsific.generated";
+
+  private static final String CLASS_NAME = "CompiledGrammar";
+
+  /**
+   * Returns a compiled parser for the grammar, or the parser itself if no
+   * compiler is available. Throws an IllegalStateException if the source
+   * written for the grammar cannot be compiled or loaded, which is a bug in
+   * {@link GrammarEmitter}.
+   */
+  @SuppressWarnings("unchecked")
+  static <S, T> Parser<S, T> compile(Parser<S, T> parser) {
+    GrammarEmitter emitter = new GrammarEmitter(parser);
+    String className = PACKAGE + "." + CLASS_NAME;
+    Class<?> type = load(className, emitter.source(PACKAGE, CLASS_NAME));
+    if (type == null) {
+      return parser;
+    }
+    try {
+      return (Parser<S, T>) type.getConstructor(Object[].class)
+          .newInstance((Object) emitter.constants());
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(
+          "Could not create the compiled grammar.", e);
+    }
+  }
+
+  /**
+   * Compiles the source of the class with the provided qualified name and
+   * loads it, or returns null if there is no compiler. Throws an
+   * IllegalStateException with the compiler's diagnostics if the source does
+   * not compile.
+   */
+  static Class<?> load(String className, String code) {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      return null;
+    }
+    JavaFileObject source = new Source(className, code);
+    List<String> options = Arrays.asList(
+        "-proc:none", "-classpath", classPath());
+    DiagnosticCollector<JavaFileObject> diagnostics =
+        new DiagnosticCollector<>();
+    try (ClassFiles files = new ClassFiles(compiler.getStandardFileManager(
+        null, null, StandardCharsets.UTF_8))) {
+      boolean compiled = compiler.getTask(
+          null,
+          files,
+          diagnostics,
+          options,
+          null,
+          Collections.singletonList(source)).call();
+      if (!compiled) {
+        throw new IllegalStateException(
+            "Could not compile " + className + ":" + describe(diagnostics));
+      }
+      return new Loader(files.classes).loadClass(className);
+    } catch (IOException | ClassNotFoundException e) {
+      throw new IllegalStateException("Could not load " + className + ".", e);
+    }
+  }
+
+  private static String describe(
+      DiagnosticCollector<JavaFileObject> diagnostics) {
+    StringBuilder description = new StringBuilder();
+    for (Diagnostic<? extends JavaFileObject> diagnostic
+        : diagnostics.getDiagnostics()) {
+      description.append(String.format(
+          "%n%s at line %d: %s",
+          diagnostic.getKind(),
+          diagnostic.getLineNumber(),
+          diagnostic.getMessage(Locale.ROOT)));
+    }
+    return description.toString();
+  }
+
+  /**
+   * The class path of the application, with the location this library was
+   * loaded from in case it differs.
+   */
+  private static String classPath() {
+    String classPath = System.getProperty("java.class.path", "");
+    CodeSource code =
+        CompiledParser.class.getProtectionDomain().getCodeSource();
+    if (code == null) {
+      return classPath;
+    }
+    try {
+      return classPath + File.pathSeparator
+          + new File(code.getLocation().toURI()).getPath();
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return classPath;
+    }
+  }
+
+  /**
+   * Source held in memory.
+   */
+  private static final class Source extends SimpleJavaFileObject {
+
+    private final String code;
+
+    private Source(String className, String code) {
+      super(
+          URI.create("string:///" + className.replace('.', '/') + ".java"),
+          Kind.SOURCE);
+      this.code = code;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return code;
+    }
+  }
+
+  /**
+   * Keeps the class files written by the compiler in memory.
+   */
+  private static final class ClassFiles
+      extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+    private final Map<String, ByteArrayOutputStream> classes =
+        new HashMap<>();
+
+    private ClassFiles(StandardJavaFileManager fileManager) {
+      super(fileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(
+        JavaFileManager.Location location,
+        String className,
+        JavaFileObject.Kind kind,
+        FileObject sibling) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      classes.put(className, bytes);
+      return new SimpleJavaFileObject(
+          URI.create("bytes:///" + className.replace('.', '/') + ".class"),
+          kind) {
+        @Override
+        public OutputStream openOutputStream() {
+          return bytes;
+        }
+      };
+    }
+  }
+
+  /**
+   * Defines the compiled classes, delegating everything else to the loader
+   * of this library.
+   */
+  private static final class Loader extends ClassLoader {
+
+    private final Map<String, ByteArrayOutputStream> classes;
+
+    private Loader(Map<String, ByteArrayOutputStream> classes) {
+      super(CompiledParser.class.getClassLoader());
+      this.classes = classes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      ByteArrayOutputStream bytes = classes.get(name);
+      if (bytes == null) {
+        throw new ClassNotFoundException(name);
+      }
+      byte[] code = bytes.toByteArray();
+      return defineClass(name, code, 0, code.length);
+    }
+  }
+}
@@ -0,0 +1,623 @@
+package com.parsific;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+/**
+ * Writes the Java source of a {@link CompiledParser} subclass that runs a
+ * grammar. Every node reachable from the root becomes a private method whose
+ * body runs the node's rule in straight-line code, calling the methods of
+ * its children directly, so every call site has a single target. Character
+ * classes with few ranges are tested inline.
+ *
+ * <p>A class for {@link Parsers#compile} reads values that cannot be
+ * written as source, such as functions, predicates and parsers that are not
+ * nodes, from the array passed to its constructor, which must hold
+ * {@link #constants} in order. Memo and packrat nodes, and nodes while
+ * packrat or push parsing, run through the original nodes, since their
+ * caches are kept by rule ids in the nodes.
+ *
+ * <p>A standalone class, for {@link GrammarGenerator}, needs no grammar at
+ * run time. It refers to such values by name instead, and memo, packrat and
+ * push parsing progress are not kept.
+ */
+final class GrammarEmitter {
+
+  /**
+   * Classes with at most this many ranges are tested with comparisons rather
+   * than through the class.
+   */
+  private static final int INLINE_RANGES = 4;
+
+  private final Node<?, ?> root;
+  private final boolean standalone;
+  private final Map<Object, String> names;
+  private final IdentityHashMap<Node<?, ?>, Integer> ids =
+      new IdentityHashMap<>();
+  private final List<Object> constants = new ArrayList<>();
+  private final List<String> constantTypes = new ArrayList<>();
+  private final List<String> constantSources = new ArrayList<>();
+  private final StringBuilder methods = new StringBuilder();
+
+  /**
+   * An emitter for a class that reads its constants from the array passed to
+   * its constructor.
+   */
+  GrammarEmitter(Parser<?, ?> root) {
+    this(root, false, new IdentityHashMap<>());
+  }
+
+  /**
+   * An emitter for a standalone class. Names maps values, by identity, to
+   * the source expressions that refer to them, usually static fields.
+   * Throws IllegalArgumentException if the grammar holds a value that has no
+   * name and cannot be written as a literal.
+   */
+  GrammarEmitter(Parser<?, ?> root, Map<Object, String> names) {
+    this(root, true, names);
+  }
+
+  private GrammarEmitter(
+      Parser<?, ?> root, boolean standalone, Map<Object, String> names) {
+    this.root = Node.of(root);
+    this.standalone = standalone;
+    this.names = new IdentityHashMap<>(names);
+    this.names.put(Combinators.EOF.instance, "EOF");
+    this.names.put(Combinators.SOME, "SOME");
+    this.names.put(Combinators.PREPEND, "PREPEND");
+    this.names.put(Text.CHAR_TO_STRING, "CHAR_TO_STRING");
+    this.names.put(Parsers.TO_LIST, "TO_LIST");
+    this.names.put(CharClass.DIGIT, "CharClass.DIGIT");
+    this.names.put(CharClass.LETTER, "CharClass.LETTER");
+    this.names.put(CharClass.WHITESPACE, "CharClass.WHITESPACE");
+    this.names.put(Optional.empty(), "java.util.Optional.empty()");
+    List<Node<?, ?>> nodes = Node.reachable(this.root);
+    for (Node<?, ?> node : nodes) {
+      ids.put(node, ids.size());
+    }
+    Body body = new Body();
+    for (Node<?, ?> node : nodes) {
+      methods.append('\n');
+      line(1, "private boolean " + method(node) + "(UnwindingIterator it) {");
+      node.accept(body);
+      line(1, "}");
+    }
+  }
+
+  /**
+   * The values the generated constructor expects, in order.
+   */
+  Object[] constants() {
+    return constants.toArray();
+  }
+
+  /**
+   * Returns the source of the class.
+   */
+  String source(String packageName, String className) {
+    StringBuilder source = new StringBuilder();
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+    source.append("import com.parsific.CharClass;\n")
+        .append("import com.parsific.CharPredicate;\n")
+        .append("import com.parsific.CompiledParser;\n")
+        .append("import com.parsific.Parser;\n")
+        .append("import com.parsific.Profiler;\n")
+        .append("import com.parsific.QuadFunction;\n")
+        .append("import com.parsific.QuintFunction;\n")
+        .append("import com.parsific.TriFunction;\n")
+        .append("import com.parsific.UnwindingIterator;\n")
+        .append("import java.util.LinkedList;\n")
+        .append("import java.util.function.BiFunction;\n")
+        .append("import java.util.function.Function;\n")
+        .append("import java.util.function.Predicate;\n\n")
+        .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+        .append("public final class ").append(className)
+        .append(" extends CompiledParser {\n");
+    if (!constants.isEmpty()) {
+      source.append('\n');
+    }
+    for (int i = 0; i < constants.size(); i++) {
+      if (standalone) {
+        source.append("  private static final ").append(constantTypes.get(i))
+            .append(" k").append(i).append(" =\n      ")
+            .append(constantSources.get(i)).append(";\n");
+      } else {
+        source.append("  private final ").append(constantTypes.get(i))
+            .append(" k").append(i).append(";\n");
+      }
+    }
+    if (!standalone) {
+      source.append("\n  public ").append(className)
+          .append("(Object[] constants) {\n");
+      for (int i = 0; i < constants.size(); i++) {
+        source.append("    k").append(i).append(" = (")
+            .append(constantTypes.get(i)).append(") constants[").append(i)
+            .append("];\n");
+      }
+      source.append("  }\n");
+    }
+    source.append("\n  @Override\n")
+        .append("  public boolean apply(UnwindingIterator it) {\n")
+        .append("    return ").append(method(root)).append("(it);\n")
+        .append("  }\n")
+        .append(methods)
+        .append("}\n");
+    return source.toString();
+  }
+
+  private String method(Node<?, ?> node) {
+    return "n" + ids.get(node);
+  }
+
+  private String call(Node<?, ?> node) {
+    return method(node) + "(it)";
+  }
+
+  /**
+   * Returns the field that holds the constant, adding it if it is new.
+   */
+  private String constant(Object value, String type) {
+    for (int i = 0; i < constants.size(); i++) {
+      if (constants.get(i) == value && constantTypes.get(i).equals(type)) {
+        return "k" + i;
+      }
+    }
+    if (standalone) {
+      String source = literal(value);
+      if (source == null) {
+        throw new IllegalArgumentException(
+            "No name for " + value + "; declare it in a static field.");
+      }
+      constantSources.add(source);
+    }
+    constants.add(value);
+    constantTypes.add(type);
+    return "k" + (constants.size() - 1);
+  }
+
+  /**
+   * Source for the value, or null if it has no name and is not a simple
+   * value.
+   */
+  private String literal(Object value) {
+    String name = names.get(value);
+    if (name != null) {
+      return name;
+    }
+    if (value == null) {
+      return "null";
+    }
+    if (value instanceof String) {
+      StringBuilder string = new StringBuilder("\"");
+      for (char c : ((String) value).toCharArray()) {
+        if (c >= ' ' && c < 0x7f && c != '"' && c != '\\') {
+          string.append(c);
+        } else {
+          string.append(String.format("\\u%04x", (int) c));
+        }
+      }
+      return string.append('"').toString();
+    }
+    if (value instanceof Boolean) {
+      return (Boolean) value ? "Boolean.TRUE" : "Boolean.FALSE";
+    }
+    if (value instanceof Character) {
+      return "Character.valueOf((char) " + (int) (Character) value + ")";
+    }
+    if (value instanceof Integer) {
+      return "Integer.valueOf(" + value + ")";
+    }
+    if (value instanceof Long) {
+      return "Long.valueOf(" + value + "L)";
+    }
+    if (value instanceof Double) {
+      return "Double.valueOf(Double.longBitsToDouble("
+          + Double.doubleToRawLongBits((Double) value) + "L))";
+    }
+    if (value instanceof CharClass) {
+      StringBuilder ranges = new StringBuilder("charClass(");
+      int[] bounds = ((CharClass) value).ranges();
+      for (int i = 0; i < bounds.length; i++) {
+        ranges.append(i > 0 ? ", " : "").append(bounds[i]);
+      }
+      return ranges.append(')').toString();
+    }
+    return null;
+  }
+
+  private void line(int depth, String code) {
+    for (int i = 0; i < depth; i++) {
+      methods.append("  ");
+    }
+    methods.append(code).append('\n');
+  }
+
+  /**
+   * An expression that fails expecting the class, or fails without an
+   * expectation if it is null.
+   */
+  private String expect(CharClass chars) {
+    return chars == null
+        ? "it.fail()"
+        : "it.expect(" + constant(chars, "CharClass") + ")";
+  }
+
+  /**
+   * Writes the check, after an alternative has failed, that fails at once if
+   * it cut.
+   */
+  private void failIfCut(int depth) {
+    line(depth, "if (it.cuts() != cuts) {");
+    line(depth + 1, "it.releaseScope();");
+    line(depth + 1, "return false;");
+    line(depth, "}");
+  }
+
+  /**
+   * An expression that is true if the char c passes the predicate.
+   */
+  private String test(CharPredicate predicate, String c) {
+    if (!(predicate instanceof CharClass)) {
+      return constant(predicate, "CharPredicate") + ".test(" + c + ")";
+    }
+    int[] ranges = ((CharClass) predicate).ranges();
+    if (ranges.length / 2 > INLINE_RANGES) {
+      return constant(predicate, "CharClass") + ".test(" + c + ")";
+    }
+    if (ranges.length == 0) {
+      return "false";
+    }
+    StringBuilder test = new StringBuilder("(");
+    for (int i = 0; i < ranges.length; i += 2) {
+      if (i > 0) {
+        test.append(" || ");
+      }
+      if (ranges[i] == ranges[i + 1]) {
+        test.append(c).append(" == ").append(ranges[i]);
+      } else {
+        test.append(c).append(" >= ").append(ranges[i])
+            .append(" && ").append(c).append(" <= ").append(ranges[i + 1]);
+      }
+    }
+    return test.append(')').toString();
+  }
+
+  /**
+   * The interface to call function through for count results, or null if it
+   * is not one of the functions of {@link Combinators#and}.
+   */
+  private static String functionType(Object function, int count) {
+    if (count == 2 && function instanceof BiFunction) {
+      return "BiFunction";
+    }
+    if (count == 3 && function instanceof TriFunction) {
+      return "TriFunction";
+    }
+    if (count == 4 && function instanceof QuadFunction) {
+      return "QuadFunction";
+    }
+    if (count == 5 && function instanceof QuintFunction) {
+      return "QuintFunction";
+    }
+    return null;
+  }
+
+  /**
+   * Writes the body of the method for a node.
+   */
+  private final class Body implements Node.Visitor<Void> {
+
+    @Override
+    public Void visitCharRun(Node.CharRun<?> node) {
+      if (!standalone) {
+        line(2, "if (isPushParsing(it)) {");
+        line(3, "return " + constant(node, "Parser") + ".apply(it);");
+        line(2, "}");
+      }
+      boolean string = node.result() == Node.CharRun.Result.STRING;
+      line(2, "int start = " + (string ? "it.mark()" : "it.nextIndex()") + ";");
+      line(2, "while (it.hasNext() && "
+          + test(node.predicate(), "it.peekChar()") + ") {");
+      line(3, "it.nextChar();");
+      line(2, "}");
+      line(2, "int end = it.nextIndex();");
+      if (string) {
+        line(2, "Object value = substring(it, start, end);");
+        line(2, "it.release();");
+      } else if (node.result() == Node.CharRun.Result.SPAN) {
+        line(2, "Object value = span(it, start, end);");
+      } else {
+        line(2, "Object value = null;");
+      }
+      if (node.atLeastOne()) {
+        line(2, "return end == start ? " + expect(node.charClass())
+            + " : it.succeed(value);");
+      } else {
+        line(2, "return it.succeed(value);");
+      }
+      return null;
+    }
+
+    @Override
+    public Void visitChoice(Node.Choice<?, ?> node) {
+      if (!standalone) {
+        line(2, "if (isPackrat(it)) {");
+        line(3, "return " + constant(node, "Parser") + ".apply(it);");
+        line(2, "}");
+      }
+      line(2, "int cuts = it.cuts();");
+      line(2, "int mark = it.markScope();");
+      for (Node<?, ?> alternative : node.children()) {
+        line(2, "if (" + call(alternative) + ") {");
+        line(3, "it.releaseScope();");
+        line(3, "return true;");
+        line(2, "}");
+        failIfCut(2);
+        line(2, "it.reset(mark);");
+      }
+      line(2, "it.releaseScope();");
+      line(2, "return it.fail();");
+      return null;
+    }
+
+    @Override
+    public Void visitCut(Node.Cut<?> node) {
+      line(2, "it.cut();");
+      line(2, "return it.succeed(null);");
+      return null;
+    }
+
+    @Override
+    public Void visitDispatch(Node.Dispatch<?> node) {
+      // Mirrors Dispatch.apply: a lone candidate runs without backtracking.
+      List<? extends Node<?, ?>> alternatives = node.children();
+      line(2, "boolean more = it.hasNext();");
+      line(2, "char c = more ? it.peekChar() : 0;");
+      for (int i = 0; i < alternatives.size(); i++) {
+        CharClass first = node.firstChars(i);
+        line(2, "boolean t" + i + " = "
+            + (first == null ? "true" : "more && " + test(first, "c")) + ";");
+      }
+      StringBuilder count = new StringBuilder();
+      for (int i = 0; i < alternatives.size(); i++) {
+        count.append(i > 0 ? " + " : "").append("(t" + i + " ? 1 : 0)");
+      }
+      line(2, "int count = " + count + ";");
+      line(2, "if (count == 0) {");
+      line(3, "return " + expect(node.expected()) + ";");
+      line(2, "}");
+      line(2, "int cuts = it.cuts();");
+      line(2, "int mark = it.markScope();");
+      line(2, "if (count == 1) {");
+      for (int i = 0; i < alternatives.size(); i++) {
+        line(3, "if (t" + i + ") {");
+        line(4, "boolean success = " + call(alternatives.get(i)) + ";");
+        line(4, "it.releaseScope();");
+        line(4, "return success;");
+        line(3, "}");
+      }
+      line(2, "}");
+      for (int i = 0; i < alternatives.size(); i++) {
+        line(2, "if (t" + i + ") {");
+        line(3, "if (" + call(alternatives.get(i)) + ") {");
+        line(4, "it.releaseScope();");
+        line(4, "return true;");
+        line(3, "}");
+        failIfCut(3);
+        line(3, "it.reset(mark);");
+        line(2, "}");
+      }
+      line(2, "it.releaseScope();");
+      line(2, "return it.fail();");
+      return null;
+    }
+
+    @Override
+    public Void visitEnd(Node.End<?> node) {
+      String eof = constant(Combinators.EOF.instance, "Object");
+      line(2, "return it.hasNext() ? it.expect(" + eof + ") : it.succeed("
+          + eof + ");");
+      return null;
+    }
+
+    @Override
+    public Void visitLeaf(Node.Leaf<?, ?> node) {
+      line(2, "return " + constant(node.parser(), "Parser") + ".apply(it);");
+      return null;
+    }
+
+    @Override
+    public Void visitLiteral(Node.Literal node) {
+      String string = node.string();
+      for (int i = 0; i < string.length(); i++) {
+        int c = string.charAt(i);
+        line(2, "if (!it.hasNext() || it.peekChar() != " + c + ") {");
+        line(3, "return it.expect(Character.valueOf((char) " + c + "));");
+        line(2, "}");
+        line(2, "it.nextChar();");
+      }
+      line(2, "return it.succeed(" + constant(string, "Object") + ");");
+      return null;
+    }
+
+    @Override
+    public Void visitMany(Node.Many<?, ?> node) {
+      if (!standalone) {
+        line(2, "if (isPushParsing(it)) {");
+        line(3, "return " + constant(node, "Parser") + ".apply(it);");
+        line(2, "}");
+      }
+      line(2, node.collects()
+          ? "LinkedList list = new LinkedList();"
+          : "LinkedList list = null;");
+      line(2, "while (it.hasNext()) {");
+      line(3, "int cuts = it.cuts();");
+      line(3, "int mark = it.markScope();");
+      line(3, "if (!" + call(node.element()) + ") {");
+      failIfCut(4);
+      line(4, "it.reset(mark);");
+      line(4, "it.releaseScope();");
+      line(4, "return it.succeed(list);");
+      line(3, "}");
+      line(3, "it.releaseScope();");
+      if (node.collects()) {
+        line(3, "list.add(it.value());");
+      }
+      line(2, "}");
+      line(2, "return it.succeed(list);");
+      return null;
+    }
+
+    @Override
+    public Void visitMap(Node.Map<?, ?, ?> node) {
+      line(2, "if (!" + call(node.parser()) + ") {");
+      line(3, "return false;");
+      line(2, "}");
+      line(2, "try {");
+      line(3, "return it.succeed("
+          + constant(node.function(), "Function") + ".apply(it.value()));");
+      line(2, "} catch (Exception e) {");
+      line(3, "return it.fail();");
+      line(2, "}");
+      return null;
+    }
+
+    @Override
+    public Void visitMemo(Node.Memo<?, ?> node) {
+      line(2, "return " + (standalone
+          ? call(node.parser())
+          : constant(node, "Parser") + ".apply(it)") + ";");
+      return null;
+    }
+
+    @Override
+    public Void visitNamed(Node.Named<?, ?> node) {
+      line(2, "Profiler profiler = profiler(it);");
+      line(2, "if (profiler == null) {");
+      line(3, "return " + call(node.parser()) + ";");
+      line(2, "}");
+      line(2, "enter(profiler, " + constant(node.name(), "String")
+          + ", it);");
+      line(2, "boolean success = false;");
+      line(2, "try {");
+      line(3, "success = " + call(node.parser()) + ";");
+      line(3, "return success;");
+      line(2, "} finally {");
+      line(3, "exit(profiler, it, success);");
+      line(2, "}");
+      return null;
+    }
+
+    @Override
+    public Void visitOneChar(Node.OneChar node) {
+      line(2, "if (it.hasNext() && "
+          + test(node.predicate(), "it.peekChar()") + ") {");
+      line(3, "return it.succeed(it.nextChar());");
+      line(2, "}");
+      line(2, "return " + expect(node.charClass()) + ";");
+      return null;
+    }
+
+    @Override
+    public Void visitOneToken(Node.OneToken<?> node) {
+      line(2, "if (it.hasNext() && " + constant(node.predicate(), "Predicate")
+          + ".test(it.peek())) {");
+      line(3, "return it.succeed(it.next());");
+      line(2, "}");
+      line(2, "return it.fail();");
+      return null;
+    }
+
+    @Override
+    public Void visitPackrat(Node.Packrat<?, ?> node) {
+      line(2, "return " + (standalone
+          ? call(node.parser())
+          : constant(node, "Parser") + ".apply(it)") + ";");
+      return null;
+    }
+
+    @Override
+    public Void visitPure(Node.Pure<?, ?> node) {
+      line(2, "return it.succeed(" + constant(node.value(), "Object") + ");");
+      return null;
+    }
+
+    @Override
+    public Void visitRef(Node.Ref<?, ?> node) {
+      if (standalone && node.target() == null) {
+        throw new IllegalArgumentException(
+            "Ref " + node.name() + " has not been set.");
+      }
+      // An unset ref is left to throw, or to run its target if set later.
+      line(2, "return " + (node.target() == null
+          ? constant(node, "Parser") + ".apply(it)"
+          : call(node.target())) + ";");
+      return null;
+    }
+
+    @Override
+    public Void visitSequence(Node.Sequence<?, ?> node) {
+      List<? extends Node<?, ?>> children = node.children();
+      if (node.combiner() == null) {
+        line(2, "Object kept = null;");
+      }
+      // The function of and is called directly, without an array.
+      String type = functionType(node.function(), children.size());
+      boolean array = node.combiner() != null && type == null;
+      if (array) {
+        line(2, "Object[] results = new Object[" + children.size() + "];");
+      }
+      for (int i = 0; i < children.size(); i++) {
+        line(2, "if (!" + call(children.get(i)) + ") {");
+        line(3, "return false;");
+        line(2, "}");
+        if (array) {
+          line(2, "results[" + i + "] = it.value();");
+        } else if (type != null) {
+          line(2, "Object r" + i + " = it.value();");
+        } else if (i == node.keep()) {
+          line(2, "kept = it.value();");
+        }
+      }
+      if (node.combiner() == null) {
+        line(2, "return it.succeed(kept);");
+        return null;
+      }
+      String apply;
+      if (array) {
+        apply = constant(node.combiner(), "Function") + ".apply(results)";
+      } else {
+        StringBuilder results = new StringBuilder();
+        for (int i = 0; i < children.size(); i++) {
+          results.append(i > 0 ? ", " : "").append("r").append(i);
+        }
+        apply = constant(node.function(), type) + ".apply(" + results + ")";
+      }
+      line(2, "try {");
+      line(3, "return it.succeed(" + apply + ");");
+      line(2, "} catch (Exception e) {");
+      line(3, "return it.fail();");
+      line(2, "}");
+      return null;
+    }
+
+    @Override
+    public Void visitTokenRun(Node.TokenRun<?> node) {
+      String predicate = constant(node.predicate(), "Predicate");
+      line(2, "LinkedList list = new LinkedList();");
+      line(2, "while (it.hasNext() && " + predicate + ".test(it.peek())) {");
+      line(3, "list.add(it.next());");
+      line(2, "}");
+      line(2, "return " + (node.atLeastOne()
+          ? "list.isEmpty() ? it.fail() : it.succeed(list)"
+          : "it.succeed(list)") + ";");
+      return null;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package com.parsific;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Writes the Java source of a standalone parser for a grammar, to be run at
+ * build time. The generated class extends {@link CompiledParser} and runs
+ * the grammar in the same straight-line code as {@link Parsers#compile}.
+ * It builds no grammar and uses no reflection when it runs, so it is fast
+ * from the first call and works with ahead-of-time compilers such as
+ * GraalVM native-image.
+ *
+ * <p>The generated code refers to the grammar's functions, predicates and
+ * opaque parsers by name, so each must be held in a static field of one of
+ * the holder classes. A field that is not public must be in the package of
+ * the generated class. Holders should not build the grammar in their static
+ * initializers, or loading the generated class will build it anyway.
+ * Strings, boxed primitives and character classes are written as literals.
+ * Memo and packrat nodes run without their caches in the generated class.
+ */
+public final class GrammarGenerator {
+
+  /**
+   * Returns the source of a class with the provided qualified name that
+   * parses the grammar. Throws IllegalArgumentException if the grammar holds
+   * a value that is not in a field of the holders.
+   */
+  public static String generate(
+      Parser<?, ?> grammar, String className, Class<?> ... holders) {
+    int dot = className.lastIndexOf('.');
+    String packageName = dot < 0 ? "" : className.substring(0, dot);
+    Map<Object, String> names = new IdentityHashMap<>();
+    for (Class<?> holder : holders) {
+      addFields(holder, packageName, names);
+    }
+    return new GrammarEmitter(grammar, names)
+        .source(packageName, className.substring(dot + 1));
+  }
+
+  /**
+   * Generates a parser from the command line, as a build task would. The
+   * arguments are the class that declares the grammar, the name of its
+   * static field or static method without parameters that returns the
+   * grammar, the qualified name of the class to generate, and the source
+   * directory to write it to. The declaring class is the holder.
+   */
+  public static void main(String[] args)
+      throws IOException, ReflectiveOperationException {
+    if (args.length != 4) {
+      throw new IllegalArgumentException(
+          "Usage: GrammarGenerator <grammar class> <field or method>"
+              + " <generated class> <source directory>");
+    }
+    Class<?> holder = Class.forName(args[0]);
+    String source = generate(grammar(holder, args[1]), args[2], holder);
+    Path file = Paths.get(args[3], args[2].replace('.', '/') + ".java");
+    Files.createDirectories(file.getParent());
+    Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static Parser<?, ?> grammar(Class<?> holder, String name)
+      throws ReflectiveOperationException {
+    for (Method method : holder.getDeclaredMethods()) {
+      if (method.getName().equals(name)
+          && method.getParameterCount() == 0
+          && Modifier.isStatic(method.getModifiers())) {
+        method.setAccessible(true);
+        return (Parser<?, ?>) method.invoke(null);
+      }
+    }
+    Field field = holder.getDeclaredField(name);
+    field.setAccessible(true);
+    return (Parser<?, ?>) field.get(null);
+  }
+
+  /**
+   * Names the values of the static fields of holder that a class in the
+   * package can read.
+   */
+  private static void addFields(
+      Class<?> holder, String packageName, Map<Object, String> names) {
+    boolean samePackage = holder.getPackage() == null
+        ? packageName.isEmpty()
+        : holder.getPackage().getName().equals(packageName);
+    for (Field field : holder.getDeclaredFields()) {
+      if (!isVisible(field, samePackage) || field.getType().isPrimitive()) {
+        continue;
+      }
+      try {
+        field.setAccessible(true);
+        Object value = field.get(null);
+        if (value != null && !names.containsKey(value)) {
+          names.put(value, holder.getCanonicalName() + "." + field.getName());
+        }
+      } catch (IllegalAccessException e) {
+        throw new IllegalArgumentException(
+            "Cannot read " + field.getName() + " of " + holder, e);
+      }
+    }
+  }
+
+  private static boolean isVisible(Member member, boolean samePackage) {
+    int modifiers = member.getModifiers();
+    return Modifier.isStatic(modifiers)
+        && !Modifier.isPrivate(modifiers)
+        && (samePackage || Modifier.isPublic(modifiers));
+  }
+}
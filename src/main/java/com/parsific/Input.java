@@ -0,0 +1,26 @@
+package com.parsific;
+
+/**
+ * The elements an {@link UnwindingIterator} reads. The engine only asks
+ * whether an index exists, so an input need not know its length up front;
+ * {@link ArrayLike} adds the length for inputs that do.
+ */
+public interface Input<E> {
+
+  E get(int index);
+
+  /**
+   * True if the input has an element at index. Inputs that do not know their
+   * length up front, such as {@link StreamingInput}, read ahead as far as
+   * needed to answer.
+   */
+  boolean hasIndex(int index);
+
+  /**
+   * Called when an iterator starts reading this input. Inputs that buffer
+   * data may use the iterator's {@link UnwindingIterator#committedIndex} to
+   * decide what they can discard.
+   */
+  default void attach(UnwindingIterator<?> iterator) {}
+
+}
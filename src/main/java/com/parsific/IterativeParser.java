@@ -0,0 +1,545 @@
+package com.parsific;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Runs a grammar without recursing on the Java stack; built by
+ * {@link Parsers#iterative}. Every node that runs children pushes a frame
+ * onto a stack kept in arrays on the heap and returns to a loop, so the
+ * nesting a parse can follow does not depend on the size of the thread's
+ * stack. Instead, the number of refs entered and not yet returned from is
+ * limited; a parse that would nest deeper fails at once where it is,
+ * without trying other alternatives.
+ *
+ * <p>Values, failure indexes, cuts, memoization, packrat mode and profiling
+ * are the same as when the grammar is applied directly. Parsers that are
+ * not nodes, such as lambdas and parsers from {@link Parsers#compile}, and
+ * repetitions while push parsing, still run on the Java stack.
+ */
+public final class IterativeParser<S, T> implements ContextParser<S, T> {
+
+  /**
+   * The depth of nesting allowed by {@link Parsers#iterative(Parser)}.
+   */
+  public static final int DEFAULT_MAX_DEPTH = 10000;
+
+  private final Node<S, T> root;
+  private final int maxDepth;
+  private final DepthLimit limit;
+
+  IterativeParser(Parser<S, T> parser, int maxDepth) {
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException("Depth must not be negative.");
+    }
+    this.root = Node.of(parser);
+    this.maxDepth = maxDepth;
+    this.limit = new DepthLimit(maxDepth);
+  }
+
+  /**
+   * The number of refs a parse may be inside at once.
+   */
+  public int maxDepth() {
+    return maxDepth;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean apply(UnwindingIterator<S> iterator) {
+    return new Machine((UnwindingIterator<Object>) (UnwindingIterator<?>)
+        iterator, maxDepth, limit).run(root);
+  }
+
+  /**
+   * What a parse that nests too deeply reports as expected; see
+   * {@link ParseFailure#getExpected}.
+   */
+  private static final class DepthLimit {
+
+    private final int maxDepth;
+
+    private DepthLimit(int maxDepth) {
+      this.maxDepth = maxDepth;
+    }
+
+    @Override
+    public String toString() {
+      return "nesting of at most " + maxDepth + " levels";
+    }
+  }
+
+  /**
+   * The state of one parse. Visiting a node starts it: a node without
+   * children runs at once and the visit returns null, with the result in
+   * success; any other node pushes a frame and the visit returns the child
+   * to run first. When a child finishes, the frame on top of the stack
+   * continues from where it left off.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final class Machine implements Node.Visitor<Node<?, ?>> {
+
+    private static final int SEQUENCE = 0;
+    private static final int CHOICE = 1;
+    private static final int DISPATCH = 2;
+    private static final int MANY = 3;
+    private static final int MAP = 4;
+    private static final int REF = 5;
+    private static final int NAMED = 6;
+    private static final int MEMO = 7;
+    private static final int PACKRAT = 8;
+
+    private final UnwindingIterator<Object> iterator;
+    private final int maxDepth;
+    private final DepthLimit limit;
+    private int[] kinds = new int[32];
+    private Node<?, ?>[] nodes = new Node<?, ?>[32];
+    private int[] indexes = new int[32];
+    private int[] marks = new int[32];
+    private int[] counts = new int[32];
+    // The number of cuts made when each frame was pushed.
+    private int[] cuts = new int[32];
+    private Object[] data = new Object[32];
+    private int size;
+    // The results of the children of combining sequences, kept on a stack of
+    // their own so that a sequence allocates no array for them.
+    private Object[] values = new Object[32];
+    private int valueCount;
+    private int depth;
+    private boolean tooDeep;
+    private boolean success;
+
+    private Machine(
+        UnwindingIterator<Object> iterator, int maxDepth, DepthLimit limit) {
+      this.iterator = iterator;
+      this.maxDepth = maxDepth;
+      this.limit = limit;
+    }
+
+    boolean run(Node<?, ?> root) {
+      Node<?, ?> next = root;
+      try {
+        while (true) {
+          if (next != null) {
+            next = next.accept(this);
+            if (tooDeep) {
+              unwind();
+              return iterator.expect(limit);
+            }
+          } else if (size == 0) {
+            return success;
+          } else {
+            next = resume();
+          }
+        }
+      } catch (RuntimeException | Error e) {
+        unwind();
+        throw e;
+      }
+    }
+
+    /**
+     * Continues the frame on top of the stack now that the child it ran has
+     * finished with success. Returns the next child to run, or null if the
+     * frame has finished too.
+     */
+    private Node<?, ?> resume() {
+      int top = size - 1;
+      switch (kinds[top]) {
+        case SEQUENCE:
+          return resumeSequence(top);
+        case CHOICE:
+          return resumeChoice(top);
+        case DISPATCH:
+          return resumeDispatch(top);
+        case MANY:
+          return resumeMany(top);
+        case MAP:
+          if (success) {
+            try {
+              success = iterator.succeed(((Node.Map) nodes[top]).function()
+                  .apply(iterator.value()));
+            } catch (Exception e) {
+              success = iterator.fail();
+            }
+          }
+          break;
+        case REF:
+          depth--;
+          break;
+        case NAMED:
+          ((Profiler) data[top]).exit(iterator, success);
+          break;
+        case MEMO:
+          Node.record(
+              (MemoTable) data[top],
+              indexes[top],
+              marks[top],
+              counts[top],
+              cuts[top],
+              success,
+              iterator);
+          break;
+        case PACKRAT:
+          iterator.memoize((MemoTable) data[top])
+              .setPackrat(indexes[top] != 0);
+          break;
+        default:
+          throw new IllegalStateException("Unknown frame " + kinds[top]);
+      }
+      pop();
+      return null;
+    }
+
+    private Node<?, ?> resumeSequence(int top) {
+      // The frame's count is where its results start on the value stack.
+      int base = counts[top];
+      if (!success) {
+        dropValues(base);
+        pop();
+        return null;
+      }
+      Node.Sequence sequence = (Node.Sequence) nodes[top];
+      int i = indexes[top];
+      if (sequence.combiner() != null) {
+        pushValue(iterator.value());
+      } else if (i == sequence.keep()) {
+        data[top] = iterator.value();
+      }
+      if (++i < sequence.size()) {
+        indexes[top] = i;
+        return sequence.child(i);
+      }
+      Object result = data[top];
+      pop();
+      if (sequence.combiner() == null) {
+        success = iterator.succeed(result);
+        return null;
+      }
+      try {
+        success = iterator.succeed(sequence.combine(values, base));
+      } catch (Exception e) {
+        success = iterator.fail();
+      } finally {
+        dropValues(base);
+      }
+      return null;
+    }
+
+    private void pushValue(Object value) {
+      if (valueCount == values.length) {
+        values = Arrays.copyOf(values, valueCount * 2);
+      }
+      values[valueCount++] = value;
+    }
+
+    /**
+     * Drops the values from base up, so the stack holds on to no results.
+     */
+    private void dropValues(int base) {
+      Arrays.fill(values, base, valueCount, null);
+      valueCount = base;
+    }
+
+    private Node<?, ?> resumeChoice(int top) {
+      if (finishAlternative(top)) {
+        return null;
+      }
+      Node.Choice choice = (Node.Choice) nodes[top];
+      int i = ++indexes[top];
+      if (i < choice.size()) {
+        return alternative(
+            choice.child(i), choice.firstRule() + i, (MemoTable) data[top]);
+      }
+      iterator.releaseScope();
+      pop();
+      success = iterator.fail();
+      return null;
+    }
+
+    private Node<?, ?> resumeDispatch(int top) {
+      int[] candidates = (int[]) data[top];
+      if (candidates.length == 1) {
+        // A lone candidate's result is the dispatch's.
+        iterator.releaseScope();
+        pop();
+        return null;
+      }
+      if (finishAlternative(top)) {
+        return null;
+      }
+      int i = ++indexes[top];
+      if (i < candidates.length) {
+        return ((Node.Dispatch) nodes[top]).child(candidates[i]);
+      }
+      iterator.releaseScope();
+      pop();
+      success = iterator.fail();
+      return null;
+    }
+
+    /**
+     * Pops the frame of a choice if its alternative succeeded or cut, or
+     * resets the iterator for the next alternative. Returns true if popped.
+     */
+    private boolean finishAlternative(int top) {
+      if (success || iterator.cuts() != cuts[top]) {
+        iterator.releaseScope();
+        pop();
+        return true;
+      }
+      iterator.reset(marks[top]);
+      return false;
+    }
+
+    private Node<?, ?> resumeMany(int top) {
+      LinkedList list = (LinkedList) data[top];
+      if (!success) {
+        if (iterator.cuts() == cuts[top]) {
+          iterator.reset(marks[top]);
+          success = iterator.succeed(list);
+        }
+        iterator.releaseScope();
+        pop();
+        return null;
+      }
+      iterator.releaseScope();
+      if (list != null) {
+        list.add(iterator.value());
+      }
+      if (iterator.hasNext()) {
+        marks[top] = iterator.markScope();
+        return ((Node.Many) nodes[top]).element();
+      }
+      pop();
+      success = iterator.succeed(list);
+      return null;
+    }
+
+    /**
+     * Returns alternative to run next, or null if a packrat table already
+     * held its result.
+     */
+    private Node<?, ?> alternative(Node<?, ?> node, int rule, MemoTable table) {
+      return table == null ? node : memoized(node, rule, table);
+    }
+
+    private Node<?, ?> memoized(Node<?, ?> node, int rule, MemoTable table) {
+      int offset = iterator.nextIndex();
+      int slot = table.find(rule, offset);
+      if (slot >= 0) {
+        success = Node.replay(table, slot, iterator);
+        return null;
+      }
+      push(MEMO, null, rule, offset, iterator.endHits(), table);
+      return node;
+    }
+
+    /**
+     * Runs a node without children directly.
+     */
+    private Node<?, ?> complete(Node node) {
+      success = node.apply(iterator);
+      return null;
+    }
+
+    private void push(
+        int kind, Node<?, ?> node, int index, int mark, int count, Object o) {
+      if (size == kinds.length) {
+        int capacity = size * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        nodes = Arrays.copyOf(nodes, capacity);
+        indexes = Arrays.copyOf(indexes, capacity);
+        marks = Arrays.copyOf(marks, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        cuts = Arrays.copyOf(cuts, capacity);
+        data = Arrays.copyOf(data, capacity);
+      }
+      kinds[size] = kind;
+      nodes[size] = node;
+      indexes[size] = index;
+      marks[size] = mark;
+      counts[size] = count;
+      cuts[size] = iterator.cuts();
+      data[size] = o;
+      size++;
+    }
+
+    private void pop() {
+      size--;
+      nodes[size] = null;
+      data[size] = null;
+    }
+
+    /**
+     * Abandons every frame, releasing their marks and restoring the state
+     * they changed, as the nodes would when the parse fails or throws.
+     */
+    private void unwind() {
+      while (size > 0) {
+        int top = size - 1;
+        switch (kinds[top]) {
+          case CHOICE:
+          case DISPATCH:
+          case MANY:
+            iterator.releaseScope();
+            break;
+          case NAMED:
+            ((Profiler) data[top]).exit(iterator, false);
+            break;
+          case PACKRAT:
+            iterator.memoize((MemoTable) data[top])
+                .setPackrat(indexes[top] != 0);
+            break;
+          default:
+            break;
+        }
+        pop();
+      }
+      dropValues(0);
+      depth = 0;
+    }
+
+    @Override
+    public Node<?, ?> visitCharRun(Node.CharRun<?> node) {
+      return complete(node);
+    }
+
+    @Override
+    public Node<?, ?> visitChoice(Node.Choice<?, ?> node) {
+      if (node.size() == 0) {
+        return complete(node);
+      }
+      MemoTable table = iterator.isPackrat() ? iterator.memoTable() : null;
+      push(CHOICE, node, 0, iterator.markScope(), 0, table);
+      return alternative(node.child(0), node.firstRule(), table);
+    }
+
+    @Override
+    public Node<?, ?> visitCut(Node.Cut<?> node) {
+      return complete(node);
+    }
+
+    @Override
+    public Node<?, ?> visitDispatch(Node.Dispatch<?> node) {
+      int[] candidates =
+          node.candidates((UnwindingIterator) iterator);
+      if (candidates.length == 0) {
+        success = iterator.expect(node.expected());
+        return null;
+      }
+      push(DISPATCH, node, 0, iterator.markScope(), 0, candidates);
+      return node.child(candidates[0]);
+    }
+
+    @Override
+    public Node<?, ?> visitEnd(Node.End<?> node) {
+      return complete(node);
+    }
+
+    @Override
+    public Node<?, ?> visitLeaf(Node.Leaf<?, ?> node) {
+      return complete(node);
+    }
+
+    @Override
+    public Node<?, ?> visitLiteral(Node.Literal node) {
+      return complete(node);
+    }
+
+    @Override
+    public Node<?, ?> visitMany(Node.Many<?, ?> node) {
+      if (iterator.checkpoints() != null) {
+        // Progress while push parsing is kept by the node itself.
+        return complete(node);
+      }
+      LinkedList<?> list = node.collects() ? new LinkedList<>() : null;
+      if (!iterator.hasNext()) {
+        success = iterator.succeed(list);
+        return null;
+      }
+      push(MANY, node, 0, iterator.markScope(), 0, list);
+      return node.element();
+    }
+
+    @Override
+    public Node<?, ?> visitMap(Node.Map<?, ?, ?> node) {
+      push(MAP, node, 0, 0, 0, null);
+      return node.parser();
+    }
+
+    @Override
+    public Node<?, ?> visitMemo(Node.Memo<?, ?> node) {
+      MemoTable table = iterator.memoTable();
+      if (table == null) {
+        table = MemoTable.window(Combinators.DEFAULT_MEMO_WINDOW);
+        iterator.memoize(table);
+      }
+      return memoized(node.parser(), node.rule(), table);
+    }
+
+    @Override
+    public Node<?, ?> visitNamed(Node.Named<?, ?> node) {
+      Profiler profiler = iterator.profiler();
+      if (profiler == null) {
+        return node.parser();
+      }
+      profiler.enter(node.name(), iterator.nextIndex());
+      push(NAMED, node, 0, 0, 0, profiler);
+      return node.parser();
+    }
+
+    @Override
+    public Node<?, ?> visitOneChar(Node.OneChar node) {
+      return complete(node);
+    }
+
+    @Override
+    public Node<?, ?> visitOneToken(Node.OneToken<?> node) {
+      return complete(node);
+    }
+
+    @Override
+    public Node<?, ?> visitPackrat(Node.Packrat<?, ?> node) {
+      int packrat = iterator.isPackrat() ? 1 : 0;
+      push(PACKRAT, node, packrat, 0, 0, iterator.memoTable());
+      iterator.memoize(node.tables().get()).setPackrat(true);
+      return node.parser();
+    }
+
+    @Override
+    public Node<?, ?> visitPure(Node.Pure<?, ?> node) {
+      return complete(node);
+    }
+
+    @Override
+    public Node<?, ?> visitRef(Node.Ref<?, ?> node) {
+      Node<?, ?> target = node.target();
+      if (target == null) {
+        throw new IllegalStateException(
+            "Ref " + node.name() + " has not been set.");
+      }
+      if (depth == maxDepth) {
+        tooDeep = true;
+        return null;
+      }
+      depth++;
+      push(REF, node, 0, 0, 0, null);
+      return target;
+    }
+
+    @Override
+    public Node<?, ?> visitSequence(Node.Sequence<?, ?> node) {
+      if (node.size() == 0) {
+        return complete(node);
+      }
+      push(SEQUENCE, node, 0, 0, valueCount, null);
+      return node.child(0);
+    }
+
+    @Override
+    public Node<?, ?> visitTokenRun(Node.TokenRun<?> node) {
+      return complete(node);
+    }
+  }
+}
@@ -0,0 +1,233 @@
+package com.parsific;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link CharInput} over a memory-mapped UTF-8 or ASCII file. The file is
+ * not copied onto the heap: bytes are read in place from the mapping, which
+ * the OS page cache can share between parses, and are decoded only when a
+ * character is read.
+ *
+ * <p>Decoding keeps a cursor that pairs a character index with its byte
+ * position. Parsers read mostly forwards and backtrack short distances, so
+ * moving the cursor costs a step per character. Characters outside the Basic
+ * Multilingual Plane are read as two chars, a surrogate pair, as in a String.
+ * Malformed bytes are read as U+FFFD.
+ *
+ * <p>The cursor is mutable, so an instance must be read by one iterator at a
+ * time. A mapping is limited to {@link Integer#MAX_VALUE} bytes.
+ */
+public final class MappedInput implements CharInput, ArrayLike<Character> {
+
+  private static final char REPLACEMENT = '\uFFFD';
+
+  /**
+   * The smallest code point that needs a sequence of each length.
+   */
+  private static final int[] MINIMUM = {0, 0, 0x80, 0x800, 0x10000};
+
+  /**
+   * Maps the file at path for reading.
+   */
+  public static MappedInput open(Path path) throws IOException {
+    return new MappedInput(map(path));
+  }
+
+  /**
+   * Maps the file at path read-only.
+   */
+  static MappedByteBuffer map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException(
+            "File is too large to map: " + path + " (" + size + " bytes)");
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+  }
+
+  private final ByteBuffer bytes;
+  private final int size;
+  private int cursorChar;
+  private int cursorByte;
+  private boolean cursorLow;
+  private int length;
+
+  /**
+   * Reads the bytes from index 0 to the buffer's limit, which must start at a
+   * character boundary.
+   */
+  MappedInput(ByteBuffer bytes) {
+    this.bytes = bytes;
+    this.size = bytes.limit();
+    this.length = -1;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (!seek(index)) {
+      throw new IndexOutOfBoundsException("Reached end of file: " + index);
+    }
+    int lead = bytes.get(cursorByte);
+    if (lead >= 0) {
+      return (char) lead;
+    }
+    int codePoint = decode(cursorByte);
+    if (Character.isSupplementaryCodePoint(codePoint)) {
+      return cursorLow
+          ? Character.lowSurrogate(codePoint)
+          : Character.highSurrogate(codePoint);
+    }
+    return (char) codePoint;
+  }
+
+  @Override
+  public boolean hasIndex(int index) {
+    return seek(index);
+  }
+
+  /**
+   * The number of chars in the file. Decodes the rest of the file the first
+   * time it is called.
+   */
+  @Override
+  public int length() {
+    if (length < 0) {
+      int saveChar = cursorChar;
+      int saveByte = cursorByte;
+      boolean saveLow = cursorLow;
+      while (cursorByte < size) {
+        forward();
+      }
+      length = cursorChar;
+      cursorChar = saveChar;
+      cursorByte = saveByte;
+      cursorLow = saveLow;
+    }
+    return length;
+  }
+
+  @Override
+  public String substring(int start, int end) {
+    StringBuilder builder = new StringBuilder(end - start);
+    for (int i = start; i < end; i++) {
+      builder.append(charAt(i));
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Moves the cursor to index. Returns false if the file ends first.
+   */
+  private boolean seek(int index) {
+    while (cursorChar > index) {
+      backward();
+    }
+    while (cursorChar < index && cursorByte < size) {
+      forward();
+    }
+    return cursorChar == index && cursorByte < size;
+  }
+
+  private void forward() {
+    if (!cursorLow && isSupplementaryAt(cursorByte)) {
+      cursorLow = true;
+    } else {
+      cursorByte += sequenceLength(cursorByte);
+      cursorLow = false;
+    }
+    cursorChar++;
+  }
+
+  private void backward() {
+    if (cursorLow) {
+      cursorLow = false;
+    } else {
+      cursorByte = previousStart(cursorByte);
+      cursorLow = isSupplementaryAt(cursorByte);
+    }
+    cursorChar--;
+  }
+
+  private boolean isSupplementaryAt(int position) {
+    return bytes.get(position) < 0
+        && Character.isSupplementaryCodePoint(decode(position));
+  }
+
+  /**
+   * The number of bytes in the sequence starting at position. A lead byte
+   * that is not followed by enough continuation bytes is a sequence of one.
+   */
+  private int sequenceLength(int position) {
+    int lead = bytes.get(position) & 0xFF;
+    int length = expectedLength(lead);
+    if (length == 1 || position + length > size) {
+      return 1;
+    }
+    for (int i = 1; i < length; i++) {
+      if (!isContinuation(bytes.get(position + i))) {
+        return 1;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * The start of the sequence that ends just before position. Mirrors
+   * sequenceLength, so that stepping back lands where stepping forward did.
+   */
+  private int previousStart(int position) {
+    int last = position - 1;
+    if (!isContinuation(bytes.get(last))) {
+      return last;
+    }
+    for (int start = last - 1; start >= 0 && start >= position - 4; start--) {
+      if (!isContinuation(bytes.get(start))) {
+        return sequenceLength(start) == position - start ? start : last;
+      }
+    }
+    return last;
+  }
+
+  private int decode(int position) {
+    int lead = bytes.get(position) & 0xFF;
+    int length = sequenceLength(position);
+    if (length == 1) {
+      return lead < 0x80 ? lead : REPLACEMENT;
+    }
+    int codePoint = lead & (0xFF >>> (length + 1));
+    for (int i = 1; i < length; i++) {
+      codePoint = (codePoint << 6) | (bytes.get(position + i) & 0x3F);
+    }
+    // Overlong encodings and encoded surrogates are malformed.
+    if (codePoint < MINIMUM[length]
+        || (codePoint >= 0xD800 && codePoint <= 0xDFFF)
+        || !Character.isValidCodePoint(codePoint)) {
+      return REPLACEMENT;
+    }
+    return codePoint;
+  }
+
+  private static int expectedLength(int lead) {
+    if ((lead & 0xE0) == 0xC0) {
+      return 2;
+    }
+    if ((lead & 0xF0) == 0xE0) {
+      return 3;
+    }
+    if ((lead & 0xF8) == 0xF0) {
+      return 4;
+    }
+    return 1;
+  }
+
+  private static boolean isContinuation(byte b) {
+    return (b & 0xC0) == 0x80;
+  }
+}
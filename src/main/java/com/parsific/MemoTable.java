@@ -0,0 +1,219 @@
+package com.parsific;
+
+import java.util.Arrays;
+
+/**
+ * Cache of parse results keyed by rule and input offset, used by
+ * {@link Combinators#memo} and {@link Combinators#packrat}. Entries are held
+ * in primitive arrays with open addressing, so a lookup allocates nothing.
+ *
+ * <p>Memory is bounded by the eviction policy. A windowed table drops entries
+ * that lie more than a given distance behind the committed offset, the
+ * position of the oldest outstanding mark on the iterator, before it grows.
+ * The parser can never backtrack behind the committed offset, so those
+ * entries would not be read again.
+ */
+public final class MemoTable {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  /**
+   * Returns a table that never evicts. Memory grows with the input.
+   */
+  public static MemoTable unbounded() {
+    return new MemoTable(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns a table that evicts entries more than distance tokens behind
+   * the committed offset.
+   */
+  public static MemoTable window(int distance) {
+    if (distance < 0) {
+      throw new IllegalArgumentException("Window must not be negative.");
+    }
+    return new MemoTable(distance);
+  }
+
+  private final int window;
+  private int[] rules;
+  private int[] offsets;
+  private int[] ends;
+  private int[] failures;
+  private boolean[] cuts;
+  private Object[] values;
+  private int size;
+
+  private MemoTable(int window) {
+    this.window = window;
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Removes every entry.
+   */
+  public void clear() {
+    if (size == 0) {
+      return;
+    }
+    Arrays.fill(offsets, -1);
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the slot holding the result for rule at offset, or -1.
+   */
+  int find(int rule, int offset) {
+    int mask = offsets.length - 1;
+    for (int slot = hash(rule, offset) & mask; ; slot = (slot + 1) & mask) {
+      if (offsets[slot] == -1) {
+        return -1;
+      }
+      if (offsets[slot] == offset && rules[slot] == rule) {
+        return slot;
+      }
+    }
+  }
+
+  /**
+   * True if the entry in slot records a successful parse.
+   */
+  boolean isSuccess(int slot) {
+    return failures[slot] < 0;
+  }
+
+  /**
+   * The offset the iterator was left at when the parse finished.
+   */
+  int end(int slot) {
+    return ends[slot];
+  }
+
+  /**
+   * The failure index of a failed parse.
+   */
+  int failureIndex(int slot) {
+    return failures[slot];
+  }
+
+  Object value(int slot) {
+    return values[slot];
+  }
+
+  /**
+   * True if the parse cut and its replay must cut again.
+   */
+  boolean isCut(int slot) {
+    return cuts[slot];
+  }
+
+  void putSuccess(int rule, int offset, int end, Object value, int committed) {
+    putSuccess(rule, offset, end, value, false, committed);
+  }
+
+  void putSuccess(
+      int rule, int offset, int end, Object value, boolean cut, int committed) {
+    put(rule, offset, end, -1, value, cut, committed);
+  }
+
+  void putFailure(
+      int rule, int offset, int end, int failureIndex, int committed) {
+    putFailure(rule, offset, end, failureIndex, false, committed);
+  }
+
+  void putFailure(
+      int rule,
+      int offset,
+      int end,
+      int failureIndex,
+      boolean cut,
+      int committed) {
+    put(rule, offset, end, failureIndex, null, cut, committed);
+  }
+
+  private void put(
+      int rule,
+      int offset,
+      int end,
+      int failureIndex,
+      Object value,
+      boolean cut,
+      int committed) {
+    if ((size + 1) * 4 > offsets.length * 3) {
+      rehash(committed);
+    }
+    int mask = offsets.length - 1;
+    int slot = hash(rule, offset) & mask;
+    while (offsets[slot] != -1
+        && !(offsets[slot] == offset && rules[slot] == rule)) {
+      slot = (slot + 1) & mask;
+    }
+    if (offsets[slot] == -1) {
+      size++;
+    }
+    rules[slot] = rule;
+    offsets[slot] = offset;
+    ends[slot] = end;
+    failures[slot] = failureIndex;
+    cuts[slot] = cut;
+    values[slot] = value;
+  }
+
+  /**
+   * Drops entries outside the window, then doubles the capacity if the table
+   * is still more than half full.
+   */
+  private void rehash(int committed) {
+    int floor = committed - window;
+    int[] oldRules = rules;
+    int[] oldOffsets = offsets;
+    int[] oldEnds = ends;
+    int[] oldFailures = failures;
+    boolean[] oldCuts = cuts;
+    Object[] oldValues = values;
+    int live = 0;
+    for (int i = 0; i < oldOffsets.length; i++) {
+      if (oldOffsets[i] != -1 && oldOffsets[i] >= floor) {
+        live++;
+      }
+    }
+    int capacity = oldOffsets.length;
+    while (live * 2 > capacity) {
+      capacity *= 2;
+    }
+    allocate(capacity);
+    for (int i = 0; i < oldOffsets.length; i++) {
+      if (oldOffsets[i] != -1 && oldOffsets[i] >= floor) {
+        put(
+            oldRules[i],
+            oldOffsets[i],
+            oldEnds[i],
+            oldFailures[i],
+            oldValues[i],
+            oldCuts[i],
+            committed);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    rules = new int[capacity];
+    offsets = new int[capacity];
+    ends = new int[capacity];
+    failures = new int[capacity];
+    cuts = new boolean[capacity];
+    values = new Object[capacity];
+    Arrays.fill(offsets, -1);
+    size = 0;
+  }
+
+  private static int hash(int rule, int offset) {
+    int h = rule * 0x9E3779B9 + offset;
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,1298 @@
+package com.parsific;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A parser that describes its own structure. The combinators in
+ * {@link Combinators}, {@link Parsers} and {@link Text} return nodes, so that
+ * a grammar built from them is a graph that tools can walk with a
+ * {@link Visitor}: to compute first sets, find nullable loops, rewrite the
+ * grammar or generate code for it. A node is still an ordinary
+ * {@link Parser}, and applying it runs the grammar directly.
+ *
+ * <p>Parsers that are not nodes, such as lambdas and the lazy stream of
+ * {@link Parsers#stream}, appear in a graph as {@link Leaf} nodes, which can
+ * be run but not inspected. A recursive grammar
+ * closes its cycles through a {@link Ref}.
+ *
+ * <p>Nodes are immutable, apart from a Ref's target, and hold no parse
+ * state: everything a parse changes is kept on its {@link UnwindingIterator}.
+ * Once its refs have been set, a grammar, and the parsers built from it by
+ * {@link Parsers#compile} and {@link Parsers#iterative}, may be shared by any
+ * number of threads parsing at once. Set the refs before the grammar is
+ * published to other threads, for instance by building it in a static
+ * initializer.
+ */
+public abstract class Node<S, T> implements ContextParser<S, T> {
+
+  /**
+   * Returns the parser as a node, wrapping it in a {@link Leaf} if it is not
+   * one.
+   */
+  @SuppressWarnings("unchecked")
+  public static <S, T> Node<S, T> of(Parser<S, T> parser) {
+    if (parser instanceof Node) {
+      return (Node<S, T>) parser;
+    }
+    return new Leaf<>(parser);
+  }
+
+  /**
+   * Returns the nodes reachable from root, each once, in depth-first order
+   * starting with root. Cycles through a {@link Ref} are followed once.
+   */
+  public static List<Node<?, ?>> reachable(Parser<?, ?> root) {
+    List<Node<?, ?>> nodes = new ArrayList<>();
+    IdentityHashMap<Node<?, ?>, Boolean> seen = new IdentityHashMap<>();
+    Deque<Node<?, ?>> stack = new ArrayDeque<>();
+    stack.push(of(root));
+    while (!stack.isEmpty()) {
+      Node<?, ?> node = stack.pop();
+      if (seen.put(node, Boolean.TRUE) != null) {
+        continue;
+      }
+      nodes.add(node);
+      List<? extends Node<?, ?>> children = node.children();
+      for (int i = children.size() - 1; i >= 0; i--) {
+        stack.push(children.get(i));
+      }
+    }
+    return nodes;
+  }
+
+  Node() {}
+
+  public abstract <R> R accept(Visitor<R> visitor);
+
+  /**
+   * The nodes this node applies, in order. A leaf has none.
+   */
+  public List<Node<S, ?>> children() {
+    return Collections.emptyList();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <S> Node<S, ?>[] nodes(Parser<S, ?>[] parsers) {
+    Node<S, ?>[] nodes = (Node<S, ?>[]) new Node<?, ?>[parsers.length];
+    for (int i = 0; i < parsers.length; i++) {
+      nodes[i] = of(parsers[i]);
+    }
+    return nodes;
+  }
+
+  /**
+   * Runs parser with results cached in table under rule; see
+   * {@link Combinators#memo}. Results that looked past the end of input
+   * which is still arriving are not cached, as more input could change them.
+   */
+  static <S> boolean applyMemoized(
+      Parser<S, ?> parser,
+      int rule,
+      UnwindingIterator<S> iterator,
+      MemoTable table) {
+    int offset = iterator.nextIndex();
+    int slot = table.find(rule, offset);
+    if (slot >= 0) {
+      return replay(table, slot, iterator);
+    }
+    int endHits = iterator.endHits();
+    int cuts = iterator.cuts();
+    return record(
+        table, rule, offset, endHits, cuts, parser.apply(iterator), iterator);
+  }
+
+  /**
+   * Moves the iterator past the result cached in slot and returns it. If
+   * the parse cut, the replay cuts too, so that the enclosing choice or
+   * repetition commits as it did the first time.
+   */
+  static boolean replay(
+      MemoTable table, int slot, UnwindingIterator<?> iterator) {
+    iterator.reset(table.end(slot));
+    if (table.isCut(slot)) {
+      iterator.cut();
+    }
+    return table.isSuccess(slot)
+        ? iterator.succeed(table.value(slot))
+        : iterator.fail(table.failureIndex(slot));
+  }
+
+  /**
+   * Caches the result of a parser that started at offset, when the input
+   * had been looked past endHits times and cuts had been made, and returns
+   * success.
+   */
+  static boolean record(
+      MemoTable table,
+      int rule,
+      int offset,
+      int endHits,
+      int cuts,
+      boolean success,
+      UnwindingIterator<?> iterator) {
+    if (iterator.endHits() != endHits) {
+      // The result may change once more input arrives, so it is not kept.
+      return success;
+    }
+    boolean cut = iterator.cuts() != cuts;
+    if (success) {
+      table.putSuccess(
+          rule,
+          offset,
+          iterator.nextIndex(),
+          iterator.value(),
+          cut,
+          iterator.committedIndex());
+      return true;
+    }
+    table.putFailure(
+        rule,
+        offset,
+        iterator.nextIndex(),
+        iterator.failureIndex(),
+        cut,
+        iterator.committedIndex());
+    return false;
+  }
+
+  /**
+   * An operation over the kinds of node. Each method receives a node of the
+   * kind it is named for.
+   */
+  public interface Visitor<R> {
+
+    R visitCharRun(CharRun<?> node);
+
+    R visitChoice(Choice<?, ?> node);
+
+    R visitCut(Cut<?> node);
+
+    R visitDispatch(Dispatch<?> node);
+
+    R visitEnd(End<?> node);
+
+    R visitLeaf(Leaf<?, ?> node);
+
+    R visitLiteral(Literal node);
+
+    R visitMany(Many<?, ?> node);
+
+    R visitMap(Map<?, ?, ?> node);
+
+    R visitMemo(Memo<?, ?> node);
+
+    R visitNamed(Named<?, ?> node);
+
+    R visitOneChar(OneChar node);
+
+    R visitOneToken(OneToken<?> node);
+
+    R visitPackrat(Packrat<?, ?> node);
+
+    R visitPure(Pure<?, ?> node);
+
+    R visitRef(Ref<?, ?> node);
+
+    R visitSequence(Sequence<?, ?> node);
+
+    R visitTokenRun(TokenRun<?> node);
+
+  }
+
+  /**
+   * A run of characters that pass a predicate, built by
+   * {@link Text#manyChars}, {@link Text#many1Chars}, {@link Text#skipChars},
+   * {@link Text#span} and {@link Text#span1}.
+   */
+  public static final class CharRun<T> extends Node<Character, T> {
+
+    /**
+     * What a run returns.
+     */
+    public enum Result {
+      /** The characters as a String. */
+      STRING,
+      /** The characters as a {@link Span}. */
+      SPAN,
+      /** Null; the characters are skipped. */
+      SKIP
+    }
+
+    private final CharPredicate predicate;
+    private final boolean atLeastOne;
+    private final Result result;
+    private final int rule;
+
+    CharRun(CharPredicate predicate, boolean atLeastOne, Result result) {
+      this.predicate = predicate;
+      this.atLeastOne = atLeastOne;
+      this.result = result;
+      this.rule = Combinators.newRules(1);
+    }
+
+    public CharPredicate predicate() {
+      return predicate;
+    }
+
+    /**
+     * The predicate as a {@link CharClass}, or null if it is some other
+     * predicate and so cannot be inspected.
+     */
+    public CharClass charClass() {
+      return predicate instanceof CharClass ? (CharClass) predicate : null;
+    }
+
+    /**
+     * True if the run fails unless it matches at least one character.
+     */
+    public boolean atLeastOne() {
+      return atLeastOne;
+    }
+
+    public Result result() {
+      return result;
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<Character> iterator) {
+      // A string is copied from the input after the run is read, so the
+      // start is marked to keep a streaming input from discarding it.
+      int start = result == Result.STRING
+          ? iterator.mark()
+          : iterator.nextIndex();
+      MemoTable checkpoints = iterator.checkpoints();
+      if (checkpoints != null) {
+        // While push parsing, skip the characters an earlier attempt at this
+        // offset accepted; more input cannot change them.
+        int slot = checkpoints.find(rule, start);
+        if (slot >= 0) {
+          iterator.reset(checkpoints.end(slot));
+        }
+      }
+      while (iterator.hasNext() && predicate.test(iterator.peekChar())) {
+        iterator.nextChar();
+      }
+      int end = iterator.nextIndex();
+      if (checkpoints != null && end > start) {
+        checkpoints.putSuccess(
+            rule, start, end, null, iterator.committedIndex());
+      }
+      Object value = null;
+      if (result == Result.STRING) {
+        value = iterator.charInput().substring(start, end);
+        iterator.release();
+      } else if (result == Result.SPAN) {
+        value = new Span(iterator.charInput(), start, end);
+      }
+      return atLeastOne && end == start
+          ? iterator.expect(charClass())
+          : iterator.succeed(value);
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitCharRun(this);
+    }
+  }
+
+  /**
+   * Alternatives tried in order until one succeeds, resetting the iterator
+   * after each failure; built by {@link Combinators#or}. An alternative that
+   * fails after a {@link Cut} fails the choice at once.
+   */
+  public static final class Choice<S, T> extends Node<S, T> {
+
+    private final Node<S, ? extends T>[] alternatives;
+    private final int firstRule;
+
+    @SuppressWarnings("unchecked")
+    Choice(Parser<S, ? extends T>[] alternatives) {
+      this.alternatives = (Node<S, ? extends T>[]) nodes(alternatives);
+      this.firstRule = Combinators.newRules(alternatives.length);
+    }
+
+    @Override
+    public List<Node<S, ?>> children() {
+      return Collections.unmodifiableList(Arrays.asList(alternatives));
+    }
+
+    int size() {
+      return alternatives.length;
+    }
+
+    Node<S, ? extends T> child(int i) {
+      return alternatives[i];
+    }
+
+    /**
+     * The rule under which alternative i is memoized in packrat mode is
+     * firstRule() + i.
+     */
+    int firstRule() {
+      return firstRule;
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<S> iterator) {
+      boolean packrat = iterator.isPackrat();
+      int cuts = iterator.cuts();
+      int mark = iterator.markScope();
+      for (int i = 0; i < alternatives.length; i++) {
+        boolean success = packrat
+            ? applyMemoized(
+                alternatives[i], firstRule + i, iterator, iterator.memoTable())
+            : alternatives[i].apply(iterator);
+        if (success) {
+          iterator.releaseScope();
+          return true;
+        }
+        if (iterator.cuts() != cuts) {
+          // The alternative committed, so no other may be tried.
+          iterator.releaseScope();
+          return false;
+        }
+        iterator.reset(mark);
+      }
+      iterator.releaseScope();
+      return iterator.fail();
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitChoice(this);
+    }
+  }
+
+  /**
+   * Succeeds without reading input and commits the parse to the current
+   * position; built by {@link Combinators#cut}. The nearest enclosing choice
+   * or repetition whose alternative or element fails after a cut fails too,
+   * rather than trying another, and its backtrack points before the cut are
+   * released.
+   */
+  public static final class Cut<S> extends Node<S, Void> {
+
+    Cut() {}
+
+    @Override
+    public boolean apply(UnwindingIterator<S> iterator) {
+      iterator.cut();
+      return iterator.succeed(null);
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitCut(this);
+    }
+  }
+
+  /**
+   * Alternatives picked by the next character through a table; built by
+   * {@link Text#choice}. A null entry in firstChars marks an alternative that
+   * is tried for every character and at the end of input.
+   */
+  public static final class Dispatch<T> extends Node<Character, T> {
+
+    /**
+     * Characters below this value are dispatched through a precomputed table.
+     */
+    private static final int TABLE_SIZE = 256;
+
+    private final CharClass[] firstChars;
+    private final Node<Character, T>[] alternatives;
+    private final int[][] table;
+    private final int[] atEnd;
+    private final CharClass expected;
+
+    @SuppressWarnings("unchecked")
+    Dispatch(CharClass[] firstChars, Parser<Character, T>[] alternatives) {
+      this.firstChars = firstChars.clone();
+      this.alternatives = (Node<Character, T>[]) nodes(alternatives);
+      CharClass union = CharClass.none();
+      for (CharClass first : firstChars) {
+        union = first == null ? union : union.union(first);
+      }
+      this.expected = union;
+      this.table = new int[TABLE_SIZE][];
+      for (char c = 0; c < TABLE_SIZE; c++) {
+        table[c] = candidates(c);
+      }
+      this.atEnd = candidates(-1);
+    }
+
+    @Override
+    public List<Node<Character, ?>> children() {
+      return Collections.unmodifiableList(Arrays.asList(alternatives));
+    }
+
+    /**
+     * The characters alternative i can begin with, or null if it is tried
+     * for every character.
+     */
+    public CharClass firstChars(int i) {
+      return firstChars[i];
+    }
+
+    /**
+     * The characters any alternative can begin with, reported when none
+     * can.
+     */
+    CharClass expected() {
+      return expected;
+    }
+
+    Node<Character, T> child(int i) {
+      return alternatives[i];
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<Character> iterator) {
+      return applyCandidates(candidates(iterator), iterator);
+    }
+
+    /**
+     * Indices of the alternatives that accept the next character, in order.
+     */
+    int[] candidates(UnwindingIterator<Character> iterator) {
+      if (!iterator.hasNext()) {
+        return atEnd;
+      }
+      char c = iterator.peekChar();
+      if (c < TABLE_SIZE) {
+        return table[c];
+      }
+      // Characters outside the table are rare; find their candidates directly.
+      return candidates(c);
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitDispatch(this);
+    }
+
+    private boolean applyCandidates(
+        int[] candidates, UnwindingIterator<Character> iterator) {
+      if (candidates.length == 0) {
+        return iterator.expect(expected);
+      }
+      int cuts = iterator.cuts();
+      int mark = iterator.markScope();
+      if (candidates.length == 1) {
+        // A lone candidate has nothing to backtrack to, but its cuts still
+        // stop here.
+        boolean success = alternatives[candidates[0]].apply(iterator);
+        iterator.releaseScope();
+        return success;
+      }
+      for (int i = 0; i < candidates.length; i++) {
+        if (alternatives[candidates[i]].apply(iterator)) {
+          iterator.releaseScope();
+          return true;
+        }
+        if (iterator.cuts() != cuts) {
+          iterator.releaseScope();
+          return false;
+        }
+        iterator.reset(mark);
+      }
+      iterator.releaseScope();
+      return iterator.fail();
+    }
+
+    /**
+     * Indices of the alternatives that accept c, in order. A negative c
+     * stands for the end of input.
+     */
+    private int[] candidates(int c) {
+      int count = 0;
+      int[] candidates = new int[alternatives.length];
+      for (int i = 0; i < alternatives.length; i++) {
+        if (firstChars[i] == null
+            || (c >= 0 && firstChars[i].test((char) c))) {
+          candidates[count++] = i;
+        }
+      }
+      return Arrays.copyOf(candidates, count);
+    }
+  }
+
+  /**
+   * Succeeds only at the end of input; built by {@link Combinators#end}.
+   */
+  public static final class End<S> extends Node<S, Combinators.EOF> {
+
+    End() {}
+
+    @Override
+    public boolean apply(UnwindingIterator<S> iterator) {
+      return iterator.hasNext()
+          ? iterator.expect(Combinators.EOF.instance)
+          : iterator.succeed(Combinators.EOF.instance);
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitEnd(this);
+    }
+  }
+
+  /**
+   * A parser whose structure is not known, such as a lambda.
+   */
+  public static final class Leaf<S, T> extends Node<S, T> {
+
+    private final Parser<S, T> parser;
+
+    Leaf(Parser<S, T> parser) {
+      this.parser = parser;
+    }
+
+    public Parser<S, T> parser() {
+      return parser;
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<S> iterator) {
+      return parser.apply(iterator);
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitLeaf(this);
+    }
+  }
+
+  /**
+   * A fixed string of characters; built by {@link Text#match}.
+   */
+  public static final class Literal extends Node<Character, String> {
+
+    private final String string;
+
+    Literal(String string) {
+      this.string = string;
+    }
+
+    public String string() {
+      return string;
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<Character> iterator) {
+      for (int i = 0; i < string.length(); i++) {
+        char c = string.charAt(i);
+        if (!iterator.hasNext() || iterator.peekChar() != c) {
+          return iterator.expect(c);
+        }
+        iterator.nextChar();
+      }
+      return iterator.succeed(string);
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitLiteral(this);
+    }
+  }
+
+  /**
+   * A parser applied until it fails, collecting its results; built by
+   * {@link Parsers#manyParser}. A many that does not collect succeeds with
+   * null, so that nothing is allocated when its results are not used.
+   */
+  public static final class Many<S, T> extends Node<S, LinkedList<T>> {
+
+    private final Node<S, T> element;
+    private final boolean collect;
+    private final int rule;
+
+    Many(Parser<S, T> element, boolean collect) {
+      this.element = of(element);
+      this.collect = collect;
+      this.rule = Combinators.newRules(1);
+    }
+
+    public Node<S, T> element() {
+      return element;
+    }
+
+    /**
+     * True if the results are collected into a list.
+     */
+    public boolean collects() {
+      return collect;
+    }
+
+    @Override
+    public List<Node<S, ?>> children() {
+      return Collections.singletonList(element);
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<S> iterator) {
+      Progress<T> progress = progress(iterator);
+      LinkedList<T> list = collect ? new LinkedList<>() : null;
+      if (progress != null) {
+        if (collect) {
+          list.addAll(progress.results);
+        }
+        iterator.reset(progress.end);
+      }
+      while (iterator.hasNext()) {
+        int cuts = iterator.cuts();
+        int mark = iterator.markScope();
+        int endHits = iterator.endHits();
+        if (!element.apply(iterator)) {
+          if (iterator.cuts() != cuts) {
+            // The element committed, so its failure fails the repetition.
+            iterator.releaseScope();
+            return false;
+          }
+          iterator.reset(mark);
+          iterator.releaseScope();
+          return iterator.succeed(list);
+        }
+        iterator.releaseScope();
+        T value = iterator.value();
+        if (collect) {
+          list.add(value);
+        }
+        if (progress != null && iterator.endHits() == endHits) {
+          if (collect) {
+            progress.results.add(value);
+          }
+          progress.end = iterator.nextIndex();
+        }
+      }
+      return iterator.succeed(list);
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitMany(this);
+    }
+
+    /**
+     * Returns the progress recorded at the current offset, creating it if
+     * needed, or null if the iterator is not push parsing.
+     */
+    @SuppressWarnings("unchecked")
+    private Progress<T> progress(UnwindingIterator<S> iterator) {
+      MemoTable checkpoints = iterator.checkpoints();
+      if (checkpoints == null) {
+        return null;
+      }
+      int offset = iterator.nextIndex();
+      int slot = checkpoints.find(rule, offset);
+      if (slot >= 0) {
+        return (Progress<T>) checkpoints.value(slot);
+      }
+      Progress<T> progress = new Progress<>(offset);
+      checkpoints.putSuccess(
+          rule, offset, offset, progress, iterator.committedIndex());
+      return progress;
+    }
+
+    /**
+     * The results that more input cannot change, and the offset after the
+     * last of them.
+     */
+    private static final class Progress<T> {
+
+      private final List<T> results = new ArrayList<>();
+      private int end;
+
+      private Progress(int end) {
+        this.end = end;
+      }
+    }
+  }
+
+  /**
+   * A function applied to the result of a parser; built by
+   * {@link Combinators#map}. An exception from the function fails the parse.
+   */
+  public static final class Map<S, T, U> extends Node<S, U> {
+
+    private final Node<S, T> parser;
+    private final Function<? super T, ? extends U> f;
+
+    Map(Parser<S, T> parser, Function<? super T, ? extends U> f) {
+      this.parser = of(parser);
+      this.f = f;
+    }
+
+    public Node<S, T> parser() {
+      return parser;
+    }
+
+    public Function<? super T, ? extends U> function() {
+      return f;
+    }
+
+    @Override
+    public List<Node<S, ?>> children() {
+      return Collections.singletonList(parser);
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<S> iterator) {
+      if (!parser.apply(iterator)) {
+        return false;
+      }
+      try {
+        return iterator.succeed(f.apply(iterator.value()));
+      } catch (Exception e) {
+        return iterator.fail();
+      }
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitMap(this);
+    }
+  }
+
+  /**
+   * A parser whose results are cached by offset; built by
+   * {@link Combinators#memo}.
+   */
+  public static final class Memo<S, T> extends Node<S, T> {
+
+    private final Node<S, T> parser;
+    private final int rule;
+
+    Memo(Parser<S, T> parser) {
+      this.parser = of(parser);
+      this.rule = Combinators.newRules(1);
+    }
+
+    public Node<S, T> parser() {
+      return parser;
+    }
+
+    int rule() {
+      return rule;
+    }
+
+    @Override
+    public List<Node<S, ?>> children() {
+      return Collections.singletonList(parser);
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<S> iterator) {
+      MemoTable table = iterator.memoTable();
+      if (table == null) {
+        table = MemoTable.window(Combinators.DEFAULT_MEMO_WINDOW);
+        iterator.memoize(table);
+      }
+      return applyMemoized(parser, rule, iterator, table);
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitMemo(this);
+    }
+  }
+
+  /**
+   * A parser that counts as a rule of its own in a {@link Profiler}; built by
+   * {@link Parsers#named}. Unless the parse is being profiled it only runs
+   * its parser.
+   */
+  public static final class Named<S, T> extends Node<S, T> {
+
+    private final String name;
+    private final Node<S, T> parser;
+
+    Named(String name, Parser<S, T> parser) {
+      this.name = name;
+      this.parser = of(parser);
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public Node<S, T> parser() {
+      return parser;
+    }
+
+    @Override
+    public List<Node<S, ?>> children() {
+      return Collections.singletonList(parser);
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<S> iterator) {
+      Profiler profiler = iterator.profiler();
+      if (profiler == null) {
+        return parser.apply(iterator);
+      }
+      profiler.enter(name, iterator.nextIndex());
+      boolean success = false;
+      try {
+        success = parser.apply(iterator);
+        return success;
+      } finally {
+        profiler.exit(iterator, success);
+      }
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitNamed(this);
+    }
+  }
+
+  /**
+   * A single character that passes a predicate; built by
+   * {@link Text#oneChar} and the helpers on it.
+   */
+  public static final class OneChar extends Node<Character, Character> {
+
+    private final CharPredicate predicate;
+
+    OneChar(CharPredicate predicate) {
+      this.predicate = predicate;
+    }
+
+    public CharPredicate predicate() {
+      return predicate;
+    }
+
+    /**
+     * The predicate as a {@link CharClass}, or null if it is some other
+     * predicate and so cannot be inspected.
+     */
+    public CharClass charClass() {
+      return predicate instanceof CharClass ? (CharClass) predicate : null;
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<Character> iterator) {
+      if (iterator.hasNext() && predicate.test(iterator.peekChar())) {
+        return iterator.succeed(iterator.nextChar());
+      }
+      return iterator.expect(charClass());
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitOneChar(this);
+    }
+  }
+
+  /**
+   * A single token that passes a predicate; built by {@link Parsers#one}
+   * and the helpers on it for tokens other than characters.
+   */
+  public static final class OneToken<S> extends Node<S, S> {
+
+    private final Predicate<S> predicate;
+
+    OneToken(Predicate<S> predicate) {
+      this.predicate = predicate;
+    }
+
+    public Predicate<S> predicate() {
+      return predicate;
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<S> iterator) {
+      if (iterator.hasNext() && predicate.test(iterator.peek())) {
+        return iterator.succeed(iterator.next());
+      }
+      return iterator.fail();
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitOneToken(this);
+    }
+  }
+
+  /**
+   * A parser run in packrat mode; built by {@link Combinators#packrat}.
+   */
+  public static final class Packrat<S, T> extends Node<S, T> {
+
+    private final Node<S, T> parser;
+    private final Supplier<MemoTable> tables;
+
+    Packrat(Parser<S, T> parser, Supplier<MemoTable> tables) {
+      this.parser = of(parser);
+      this.tables = tables;
+    }
+
+    public Node<S, T> parser() {
+      return parser;
+    }
+
+    public Supplier<MemoTable> tables() {
+      return tables;
+    }
+
+    @Override
+    public List<Node<S, ?>> children() {
+      return Collections.singletonList(parser);
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<S> iterator) {
+      MemoTable previousTable = iterator.memoTable();
+      boolean previousPackrat = iterator.isPackrat();
+      iterator.memoize(tables.get()).setPackrat(true);
+      try {
+        return parser.apply(iterator);
+      } finally {
+        iterator.memoize(previousTable).setPackrat(previousPackrat);
+      }
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitPackrat(this);
+    }
+  }
+
+  /**
+   * Succeeds with a value without reading input; built by
+   * {@link Combinators#pure}.
+   */
+  public static final class Pure<S, T> extends Node<S, T> {
+
+    private final T value;
+
+    Pure(T value) {
+      this.value = value;
+    }
+
+    public T value() {
+      return value;
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<S> iterator) {
+      return iterator.succeed(value);
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitPure(this);
+    }
+  }
+
+  /**
+   * A parser that is supplied after the ref is created, so that a rule can
+   * refer to itself; built by {@link Parsers#ref}.
+   */
+  public static final class Ref<S, T> extends Node<S, T> {
+
+    private final String name;
+    private volatile Node<S, T> target;
+
+    Ref(String name) {
+      this.name = name;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    /**
+     * The parser this ref runs, or null if it has not been set.
+     */
+    public Node<S, T> target() {
+      return target;
+    }
+
+    /**
+     * Sets the parser this ref runs. May only be called once.
+     */
+    public Ref<S, T> set(Parser<S, T> parser) {
+      if (target != null) {
+        throw new IllegalStateException("Ref " + name + " is already set.");
+      }
+      target = of(parser);
+      return this;
+    }
+
+    @Override
+    public List<Node<S, ?>> children() {
+      Node<S, T> node = target;
+      return node == null
+          ? Collections.<Node<S, ?>>emptyList()
+          : Collections.<Node<S, ?>>singletonList(node);
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<S> iterator) {
+      Node<S, T> node = target;
+      if (node == null) {
+        throw new IllegalStateException("Ref " + name + " has not been set.");
+      }
+      return node.apply(iterator);
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitRef(this);
+    }
+  }
+
+  /**
+   * Parsers applied one after another; built by {@link Combinators#and},
+   * {@link Combinators#seq} and the drop combinators. The result is either
+   * the result of one child, the kept child, or the combiner applied to all
+   * of the results. An exception from the combiner fails the parse.
+   */
+  public static final class Sequence<S, T> extends Node<S, T> {
+
+    private final Node<S, ?>[] children;
+    private final int keep;
+    private final Object function;
+    private final Function<Object[], ? extends T> combiner;
+
+    /**
+     * A sequence that returns the result of the child at index keep.
+     */
+    Sequence(int keep, Parser<S, ?>[] children) {
+      this.children = nodes(children);
+      this.keep = keep;
+      this.function = null;
+      this.combiner = null;
+    }
+
+    /**
+     * A sequence that returns the combiner applied to every result.
+     */
+    Sequence(
+        Function<Object[], ? extends T> combiner, Parser<S, ?>[] children) {
+      this(combiner, combiner, children);
+    }
+
+    /**
+     * A sequence that returns the combiner applied to every result, where
+     * the combiner passes the results on to function.
+     */
+    Sequence(
+        Object function,
+        Function<Object[], ? extends T> combiner,
+        Parser<S, ?>[] children) {
+      this.children = nodes(children);
+      this.keep = -1;
+      this.function = function;
+      this.combiner = combiner;
+    }
+
+    @Override
+    public List<Node<S, ?>> children() {
+      return Collections.unmodifiableList(Arrays.asList(children));
+    }
+
+    int size() {
+      return children.length;
+    }
+
+    Node<S, ?> child(int i) {
+      return children[i];
+    }
+
+    /**
+     * The index of the child whose result is returned, or -1 if the results
+     * are combined.
+     */
+    public int keep() {
+      return keep;
+    }
+
+    /**
+     * The function applied to the results, or null if one is kept. It takes
+     * the results as an array, which the engines build only for
+     * {@link Combinators#seq}; the results of an and are passed to its
+     * {@link #function} directly.
+     */
+    public Function<Object[], ? extends T> combiner() {
+      return combiner;
+    }
+
+    /**
+     * The function given to the combinator that built this sequence, such as
+     * the {@link java.util.function.BiFunction} given to
+     * {@link Combinators#and}, or null if one result is kept. For
+     * {@link Combinators#seq} it is the combiner.
+     */
+    public Object function() {
+      return function;
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<S> iterator) {
+      if (combiner == null) {
+        Object kept = null;
+        for (int i = 0; i < children.length; i++) {
+          if (!children[i].apply(iterator)) {
+            return false;
+          }
+          if (i == keep) {
+            kept = iterator.value();
+          }
+        }
+        return iterator.succeed(kept);
+      }
+      if (function != combiner) {
+        return applyFunction(iterator);
+      }
+      Object[] results = new Object[children.length];
+      for (int i = 0; i < children.length; i++) {
+        if (!children[i].apply(iterator)) {
+          return false;
+        }
+        results[i] = iterator.value();
+      }
+      try {
+        return iterator.succeed(combiner.apply(results));
+      } catch (Exception e) {
+        return iterator.fail();
+      }
+    }
+
+    /**
+     * Runs the two to five children of an and, holding their results in
+     * locals, so that nothing is allocated beyond the function's result.
+     */
+    private boolean applyFunction(UnwindingIterator<S> iterator) {
+      int n = children.length;
+      if (!children[0].apply(iterator)) {
+        return false;
+      }
+      Object a = iterator.value();
+      if (!children[1].apply(iterator)) {
+        return false;
+      }
+      Object b = iterator.value();
+      Object c = null;
+      if (n > 2) {
+        if (!children[2].apply(iterator)) {
+          return false;
+        }
+        c = iterator.value();
+      }
+      Object d = null;
+      if (n > 3) {
+        if (!children[3].apply(iterator)) {
+          return false;
+        }
+        d = iterator.value();
+      }
+      Object e = null;
+      if (n > 4) {
+        if (!children[4].apply(iterator)) {
+          return false;
+        }
+        e = iterator.value();
+      }
+      try {
+        return iterator.succeed(call(n, a, b, c, d, e));
+      } catch (Exception ex) {
+        return iterator.fail();
+      }
+    }
+
+    /**
+     * Combines the results of the children, which start at from in values.
+     */
+    T combine(Object[] values, int from) {
+      int n = children.length;
+      if (function == combiner) {
+        return combiner.apply(Arrays.copyOfRange(values, from, from + n));
+      }
+      return call(
+          n,
+          values[from],
+          values[from + 1],
+          n > 2 ? values[from + 2] : null,
+          n > 3 ? values[from + 3] : null,
+          n > 4 ? values[from + 4] : null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T call(int n, Object a, Object b, Object c, Object d, Object e) {
+      switch (n) {
+        case 2:
+          return ((BiFunction<Object, Object, T>) function).apply(a, b);
+        case 3:
+          return ((TriFunction<Object, Object, Object, T>) function)
+              .apply(a, b, c);
+        case 4:
+          return ((QuadFunction<Object, Object, Object, Object, T>) function)
+              .apply(a, b, c, d);
+        default:
+          return ((QuintFunction<Object, Object, Object, Object, Object, T>)
+              function).apply(a, b, c, d, e);
+      }
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitSequence(this);
+    }
+  }
+
+  /**
+   * A run of tokens that pass a predicate, returned as a list; built by
+   * {@link Parsers#many} and {@link Parsers#many1}.
+   */
+  public static final class TokenRun<S> extends Node<S, LinkedList<S>> {
+
+    private final Predicate<S> predicate;
+    private final boolean atLeastOne;
+
+    TokenRun(Predicate<S> predicate, boolean atLeastOne) {
+      this.predicate = predicate;
+      this.atLeastOne = atLeastOne;
+    }
+
+    public Predicate<S> predicate() {
+      return predicate;
+    }
+
+    /**
+     * True if the run fails unless it matches at least one token.
+     */
+    public boolean atLeastOne() {
+      return atLeastOne;
+    }
+
+    @Override
+    public boolean apply(UnwindingIterator<S> iterator) {
+      LinkedList<S> list = new LinkedList<>();
+      while (iterator.hasNext() && predicate.test(iterator.peek())) {
+        list.add(iterator.next());
+      }
+      if (atLeastOne && list.isEmpty()) {
+        return iterator.fail();
+      }
+      return iterator.succeed(list);
+    }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+      return visitor.visitTokenRun(this);
+    }
+  }
+}
@@ -0,0 +1,681 @@
+package com.parsific;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Rewrites a grammar built from {@link Node}s into an equivalent one that
+ * does less work per input character. The rewritten grammar accepts the same
+ * inputs, returns the same values and fails at the same indexes. It applies:
+ *
+ * <ul>
+ *   <li>Sequence flattening: nested drop combinators become one sequence.
+ *   <li>Literal fusion: adjacent dropped literals and single characters in a
+ *       sequence become one {@link Node.Literal}.
+ *   <li>Map fusion: a map of a map applies both functions in one node.
+ *   <li>Dropped values: runs and repetitions whose results are discarded by
+ *       an enclosing sequence skip building them. User functions, in maps
+ *       and in sequences that combine results, always run, since they may
+ *       fail the parse.
+ *   <li>Prefix hoisting: consecutive alternatives of an or that begin with
+ *       the same dropped parsers share one application of them.
+ *   <li>Suffix hoisting: consecutive alternatives that end with the same
+ *       dropped parsers share them, when the parts before them cannot start
+ *       with the same character and cannot be empty, so that at most one of
+ *       those parts can succeed.
+ * </ul>
+ *
+ * <p>Parsers that are not nodes are kept as they are. The original grammar is
+ * not modified; shared nodes and cycles through a {@link Node.Ref} are
+ * preserved in the copy.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class Optimizer {
+
+  /**
+   * Returns an optimized copy of the grammar.
+   */
+  public static <S, T> Parser<S, T> optimize(Parser<S, T> parser) {
+    return (Parser<S, T>) new Optimizer().rewrite(Node.of(parser), true);
+  }
+
+  private final IdentityHashMap<Node<?, ?>, Node<?, ?>> used =
+      new IdentityHashMap<>();
+  private final IdentityHashMap<Node<?, ?>, Node<?, ?>> dropped =
+      new IdentityHashMap<>();
+  private final Rewriter usedRewriter = new Rewriter(true);
+  private final Rewriter droppedRewriter = new Rewriter(false);
+  private final FirstChars firstChars = new FirstChars();
+
+  private Optimizer() {}
+
+  /**
+   * Rewrites node once for each use of its value, so that shared nodes stay
+   * shared.
+   */
+  private Node rewrite(Node<?, ?> node, boolean valueUsed) {
+    IdentityHashMap<Node<?, ?>, Node<?, ?>> done = valueUsed ? used : dropped;
+    Node<?, ?> rewritten = done.get(node);
+    if (rewritten != null) {
+      return rewritten;
+    }
+    if (node instanceof Node.Ref) {
+      // Record the copy before rewriting the target, which may lead back here.
+      Node.Ref ref = (Node.Ref) node;
+      Node.Ref copy = new Node.Ref(ref.name());
+      done.put(node, copy);
+      if (ref.target() != null) {
+        copy.set(rewrite(ref.target(), valueUsed));
+      }
+      return copy;
+    }
+    rewritten = node.accept(valueUsed ? usedRewriter : droppedRewriter);
+    done.put(node, rewritten);
+    return rewritten;
+  }
+
+  private Node[] rewriteAll(List<? extends Node<?, ?>> nodes) {
+    Node[] rewritten = new Node[nodes.size()];
+    for (int i = 0; i < rewritten.length; i++) {
+      rewritten[i] = rewrite(nodes.get(i), true);
+    }
+    return rewritten;
+  }
+
+  /**
+   * Builds the sequence of children returning child keep, flattening nested
+   * sequences that return one child and fusing dropped literals.
+   */
+  private Node sequence(int keep, List<Node> children) {
+    List<Node> flat = new ArrayList<>();
+    int flatKeep = -1;
+    for (int i = 0; i < children.size(); i++) {
+      Node child = children.get(i);
+      if (child instanceof Node.Sequence
+          && ((Node.Sequence) child).combiner() == null) {
+        Node.Sequence inner = (Node.Sequence) child;
+        if (i == keep) {
+          flatKeep = flat.size() + inner.keep();
+        }
+        flat.addAll(inner.children());
+      } else if (child instanceof Node.Pure && i != keep) {
+        // Succeeds without reading input; nothing to run.
+      } else {
+        if (i == keep) {
+          flatKeep = flat.size();
+        }
+        flat.add(child);
+      }
+    }
+    List<Node> fused = new ArrayList<>();
+    int fusedKeep = -1;
+    for (int i = 0; i < flat.size(); i++) {
+      if (i == flatKeep) {
+        fusedKeep = fused.size();
+        fused.add(flat.get(i));
+        continue;
+      }
+      StringBuilder literal = new StringBuilder();
+      int j = i;
+      while (j < flat.size()
+          && j != flatKeep
+          && appendLiteral(flat.get(j), literal)) {
+        j++;
+      }
+      if (j - i >= 2) {
+        fused.add(new Node.Literal(literal.toString()));
+        i = j - 1;
+      } else {
+        fused.add(flat.get(i));
+      }
+    }
+    if (fused.size() == 1 && fusedKeep == 0) {
+      return fused.get(0);
+    }
+    return new Node.Sequence(fusedKeep, fused.toArray(new Node[0]));
+  }
+
+  /**
+   * Appends the text node matches, if it matches a fixed string. Returns
+   * false otherwise.
+   */
+  private static boolean appendLiteral(Node node, StringBuilder builder) {
+    if (node instanceof Node.Literal) {
+      builder.append(((Node.Literal) node).string());
+      return true;
+    }
+    if (node instanceof Node.OneChar) {
+      CharClass chars = ((Node.OneChar) node).charClass();
+      int c = chars == null ? -1 : chars.singleChar();
+      if (c >= 0) {
+        builder.append((char) c);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Builds the choice between alternatives, hoisting shared prefixes and
+   * suffixes out of runs of consecutive alternatives.
+   */
+  private Node choice(List<Node> alternatives) {
+    List<Node> grouped = new ArrayList<>();
+    int i = 0;
+    while (i < alternatives.size()) {
+      int end = i + 1;
+      while (end < alternatives.size()
+          && prefixLength(alternatives.subList(i, end + 1)) > 0) {
+        end++;
+      }
+      if (end - i >= 2) {
+        grouped.add(hoistPrefix(alternatives.subList(i, end)));
+      } else {
+        grouped.add(alternatives.get(i));
+      }
+      i = end;
+    }
+    List<Node> result = new ArrayList<>();
+    i = 0;
+    while (i < grouped.size()) {
+      int end = i + 1;
+      while (end < grouped.size()
+          && suffixLength(grouped.subList(i, end + 1)) > 0) {
+        end++;
+      }
+      if (end - i >= 2) {
+        result.add(hoistSuffix(grouped.subList(i, end)));
+      } else {
+        result.add(grouped.get(i));
+      }
+      i = end;
+    }
+    // A choice of one alternative still resets and fails at its start, as
+    // the original did.
+    return new Node.Choice(result.toArray(new Node[0]));
+  }
+
+  /**
+   * The number of leading dropped children shared by every alternative, each
+   * a sequence that returns one child that cannot cut.
+   */
+  private static int prefixLength(List<Node> alternatives) {
+    int length = Integer.MAX_VALUE;
+    Node.Sequence first = keepSequence(alternatives.get(0));
+    if (first == null) {
+      return 0;
+    }
+    for (Node alternative : alternatives) {
+      Node.Sequence sequence = keepSequence(alternative);
+      if (sequence == null || cuts(alternative, new IdentityHashMap<>())) {
+        return 0;
+      }
+      List<Node> a = first.children();
+      List<Node> b = sequence.children();
+      int shared = 0;
+      while (shared < sequence.keep()
+          && shared < first.keep()
+          && same(a.get(shared), b.get(shared))) {
+        shared++;
+      }
+      length = Math.min(length, shared);
+    }
+    return length;
+  }
+
+  private Node hoistPrefix(List<Node> alternatives) {
+    int length = prefixLength(alternatives);
+    List<Node> prefix =
+        new ArrayList<>(keepSequence(alternatives.get(0)).children())
+            .subList(0, length);
+    List<Node> rests = new ArrayList<>();
+    for (Node alternative : alternatives) {
+      Node.Sequence sequence = keepSequence(alternative);
+      List<Node> children = sequence.children();
+      rests.add(sequence(
+          sequence.keep() - length,
+          children.subList(length, children.size())));
+    }
+    List<Node> children = new ArrayList<>(prefix);
+    children.add(choice(rests));
+    return sequence(length, children);
+  }
+
+  /**
+   * The number of trailing dropped children shared by every alternative,
+   * each a sequence that returns one child that cannot cut, where the parts
+   * before them cannot both succeed.
+   */
+  private int suffixLength(List<Node> alternatives) {
+    int length = Integer.MAX_VALUE;
+    Node.Sequence first = keepSequence(alternatives.get(0));
+    if (first == null) {
+      return 0;
+    }
+    for (Node alternative : alternatives) {
+      Node.Sequence sequence = keepSequence(alternative);
+      if (sequence == null || cuts(alternative, new IdentityHashMap<>())) {
+        return 0;
+      }
+      List<Node> a = first.children();
+      List<Node> b = sequence.children();
+      int shared = 0;
+      while (shared < a.size() - 1 - first.keep()
+          && shared < b.size() - 1 - sequence.keep()
+          && same(
+              a.get(a.size() - 1 - shared), b.get(b.size() - 1 - shared))) {
+        shared++;
+      }
+      length = Math.min(length, shared);
+    }
+    if (length == 0) {
+      return 0;
+    }
+    CharClass seen = CharClass.none();
+    for (Node alternative : alternatives) {
+      List<Node> children = keepSequence(alternative).children();
+      First rest = firstChars.of(children.subList(0, children.size() - length));
+      if (rest.nullable || rest.chars == null || rest.chars.intersects(seen)) {
+        return 0;
+      }
+      seen = seen.union(rest.chars);
+    }
+    return length;
+  }
+
+  private Node hoistSuffix(List<Node> alternatives) {
+    int length = suffixLength(alternatives);
+    List<Node> rests = new ArrayList<>();
+    List<Node> suffix = null;
+    for (Node alternative : alternatives) {
+      Node.Sequence sequence = keepSequence(alternative);
+      List<Node> children = sequence.children();
+      int split = children.size() - length;
+      rests.add(sequence(sequence.keep(), children.subList(0, split)));
+      suffix = children.subList(split, children.size());
+    }
+    List<Node> children = new ArrayList<>();
+    children.add(choice(rests));
+    children.addAll(suffix);
+    return sequence(0, children);
+  }
+
+  /**
+   * True if a cut in node may commit the choice node is an alternative of,
+   * rather than a choice or repetition inside node. Hoisting would move the
+   * cut into a new choice, or out of any, and change what it commits.
+   */
+  private static boolean cuts(
+      Node<?, ?> node, IdentityHashMap<Node<?, ?>, Boolean> seen) {
+    if (node instanceof Node.Cut) {
+      return true;
+    }
+    if (node instanceof Node.Ref && ((Node.Ref) node).target() == null) {
+      // A ref still being rewritten; its target is not known yet.
+      return true;
+    }
+    if (node instanceof Node.Choice
+        || node instanceof Node.Dispatch
+        || node instanceof Node.Many
+        || seen.put(node, Boolean.TRUE) != null) {
+      return false;
+    }
+    for (Node<?, ?> child : node.children()) {
+      if (cuts(child, seen)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Node.Sequence keepSequence(Node node) {
+    if (node instanceof Node.Sequence
+        && ((Node.Sequence) node).combiner() == null) {
+      return (Node.Sequence) node;
+    }
+    return null;
+  }
+
+  /**
+   * True if a and b are known to parse the same way.
+   */
+  private static boolean same(Node a, Node b) {
+    if (a instanceof Node.Cut) {
+      // A cut hoisted out of a choice would commit to every alternative.
+      return false;
+    }
+    if (a == b) {
+      return true;
+    }
+    if (a instanceof Node.Literal && b instanceof Node.Literal) {
+      return ((Node.Literal) a).string().equals(((Node.Literal) b).string());
+    }
+    if (a instanceof Node.OneChar && b instanceof Node.OneChar) {
+      Node.OneChar x = (Node.OneChar) a;
+      Node.OneChar y = (Node.OneChar) b;
+      if (x.predicate() == y.predicate()) {
+        return true;
+      }
+      int c = x.charClass() == null ? -1 : x.charClass().singleChar();
+      return c >= 0
+          && y.charClass() != null
+          && y.charClass().singleChar() == c;
+    }
+    if (a instanceof Node.CharRun && b instanceof Node.CharRun) {
+      Node.CharRun x = (Node.CharRun) a;
+      Node.CharRun y = (Node.CharRun) b;
+      return x.predicate() == y.predicate()
+          && x.atLeastOne() == y.atLeastOne()
+          && x.result() == y.result();
+    }
+    if (a instanceof Node.Leaf && b instanceof Node.Leaf) {
+      return ((Node.Leaf) a).parser() == ((Node.Leaf) b).parser();
+    }
+    return false;
+  }
+
+  /**
+   * Rewrites one node, given whether its value is used.
+   */
+  private final class Rewriter implements Node.Visitor<Node<?, ?>> {
+
+    private final boolean valueUsed;
+
+    private Rewriter(boolean valueUsed) {
+      this.valueUsed = valueUsed;
+    }
+
+    @Override
+    public Node<?, ?> visitCharRun(Node.CharRun<?> node) {
+      if (valueUsed || node.result() == Node.CharRun.Result.SKIP) {
+        return node;
+      }
+      return new Node.CharRun<>(
+          node.predicate(), node.atLeastOne(), Node.CharRun.Result.SKIP);
+    }
+
+    @Override
+    public Node<?, ?> visitChoice(Node.Choice<?, ?> node) {
+      List<Node> alternatives = new ArrayList<>();
+      for (Node<?, ?> alternative : node.children()) {
+        alternatives.add(rewrite(alternative, valueUsed));
+      }
+      return choice(alternatives);
+    }
+
+    @Override
+    public Node<?, ?> visitDispatch(Node.Dispatch<?> node) {
+      List<? extends Node<?, ?>> children = node.children();
+      CharClass[] first = new CharClass[children.size()];
+      Node[] alternatives = new Node[children.size()];
+      for (int i = 0; i < alternatives.length; i++) {
+        first[i] = node.firstChars(i);
+        alternatives[i] = rewrite(children.get(i), valueUsed);
+      }
+      return new Node.Dispatch(first, alternatives);
+    }
+
+    @Override
+    public Node<?, ?> visitEnd(Node.End<?> node) {
+      return node;
+    }
+
+    @Override
+    public Node<?, ?> visitLeaf(Node.Leaf<?, ?> node) {
+      return node;
+    }
+
+    @Override
+    public Node<?, ?> visitLiteral(Node.Literal node) {
+      return node;
+    }
+
+    @Override
+    public Node<?, ?> visitMany(Node.Many<?, ?> node) {
+      boolean collect = valueUsed && node.collects();
+      return new Node.Many(rewrite(node.element(), collect), collect);
+    }
+
+    @Override
+    public Node<?, ?> visitMap(Node.Map<?, ?, ?> node) {
+      Node parser = rewrite(node.parser(), true);
+      Function f = node.function();
+      if (parser instanceof Node.Map) {
+        Node.Map inner = (Node.Map) parser;
+        return new Node.Map(inner.parser(), inner.function().andThen(f));
+      }
+      return new Node.Map(parser, f);
+    }
+
+    @Override
+    public Node<?, ?> visitCut(Node.Cut<?> node) {
+      return node;
+    }
+
+    @Override
+    public Node<?, ?> visitMemo(Node.Memo<?, ?> node) {
+      return new Node.Memo(rewrite(node.parser(), valueUsed));
+    }
+
+    @Override
+    public Node<?, ?> visitNamed(Node.Named<?, ?> node) {
+      return new Node.Named(node.name(), rewrite(node.parser(), valueUsed));
+    }
+
+    @Override
+    public Node<?, ?> visitOneChar(Node.OneChar node) {
+      return node;
+    }
+
+    @Override
+    public Node<?, ?> visitOneToken(Node.OneToken<?> node) {
+      return node;
+    }
+
+    @Override
+    public Node<?, ?> visitPackrat(Node.Packrat<?, ?> node) {
+      return new Node.Packrat(rewrite(node.parser(), valueUsed), node.tables());
+    }
+
+    @Override
+    public Node<?, ?> visitPure(Node.Pure<?, ?> node) {
+      return node;
+    }
+
+    @Override
+    public Node<?, ?> visitRef(Node.Ref<?, ?> node) {
+      return rewrite(node, valueUsed);
+    }
+
+    @Override
+    public Node<?, ?> visitSequence(Node.Sequence<?, ?> node) {
+      if (node.combiner() != null) {
+        return new Node.Sequence(
+            node.function(), node.combiner(), rewriteAll(node.children()));
+      }
+      List<Node> children = new ArrayList<>();
+      for (int i = 0; i < node.children().size(); i++) {
+        children.add(rewrite(
+            node.children().get(i), valueUsed && i == node.keep()));
+      }
+      return sequence(node.keep(), children);
+    }
+
+    @Override
+    public Node<?, ?> visitTokenRun(Node.TokenRun<?> node) {
+      return node;
+    }
+  }
+
+  /**
+   * The characters a parser can begin with. Chars is null when they are not
+   * known, and nullable is true when the parser can succeed without reading
+   * a character.
+   */
+  private static final class First {
+
+    private final CharClass chars;
+    private final boolean nullable;
+
+    private First(CharClass chars, boolean nullable) {
+      this.chars = chars;
+      this.nullable = nullable;
+    }
+  }
+
+  /**
+   * Computes {@link First} sets. Answers conservatively for leaves and for
+   * cycles through refs.
+   */
+  private static final class FirstChars implements Node.Visitor<First> {
+
+    private static final First UNKNOWN = new First(null, true);
+    private static final First EMPTY = new First(CharClass.none(), true);
+
+    private final IdentityHashMap<Node<?, ?>, Boolean> visiting =
+        new IdentityHashMap<>();
+
+    private First of(Node<?, ?> node) {
+      if (visiting.put(node, Boolean.TRUE) != null) {
+        return UNKNOWN;
+      }
+      try {
+        return node.accept(this);
+      } finally {
+        visiting.remove(node);
+      }
+    }
+
+    private First of(List<? extends Node> sequence) {
+      CharClass chars = CharClass.none();
+      for (Node<?, ?> node : sequence) {
+        First first = of(node);
+        chars = union(chars, first.chars);
+        if (!first.nullable) {
+          return new First(chars, false);
+        }
+      }
+      return new First(chars, true);
+    }
+
+    private static CharClass union(CharClass a, CharClass b) {
+      return a == null || b == null ? null : a.union(b);
+    }
+
+    private static CharClass asClass(CharPredicate predicate) {
+      return predicate instanceof CharClass ? (CharClass) predicate : null;
+    }
+
+    @Override
+    public First visitCharRun(Node.CharRun<?> node) {
+      return new First(asClass(node.predicate()), !node.atLeastOne());
+    }
+
+    @Override
+    public First visitChoice(Node.Choice<?, ?> node) {
+      CharClass chars = CharClass.none();
+      boolean nullable = false;
+      for (Node<?, ?> alternative : node.children()) {
+        First first = of(alternative);
+        chars = union(chars, first.chars);
+        nullable |= first.nullable;
+      }
+      return new First(chars, nullable);
+    }
+
+    @Override
+    public First visitDispatch(Node.Dispatch<?> node) {
+      CharClass chars = CharClass.none();
+      for (int i = 0; i < node.children().size(); i++) {
+        if (node.firstChars(i) == null) {
+          return UNKNOWN;
+        }
+        chars = chars.union(node.firstChars(i));
+      }
+      boolean nullable = false;
+      for (Node<?, ?> alternative : node.children()) {
+        nullable |= of(alternative).nullable;
+      }
+      return new First(chars, nullable);
+    }
+
+    @Override
+    public First visitEnd(Node.End<?> node) {
+      return EMPTY;
+    }
+
+    @Override
+    public First visitLeaf(Node.Leaf<?, ?> node) {
+      return UNKNOWN;
+    }
+
+    @Override
+    public First visitLiteral(Node.Literal node) {
+      return node.string().isEmpty()
+          ? EMPTY
+          : new First(CharClass.of(node.string().charAt(0)), false);
+    }
+
+    @Override
+    public First visitMany(Node.Many<?, ?> node) {
+      return new First(of(node.element()).chars, true);
+    }
+
+    @Override
+    public First visitMap(Node.Map<?, ?, ?> node) {
+      return of(node.parser());
+    }
+
+    @Override
+    public First visitCut(Node.Cut<?> node) {
+      return EMPTY;
+    }
+
+    @Override
+    public First visitMemo(Node.Memo<?, ?> node) {
+      return of(node.parser());
+    }
+
+    @Override
+    public First visitNamed(Node.Named<?, ?> node) {
+      return of(node.parser());
+    }
+
+    @Override
+    public First visitOneChar(Node.OneChar node) {
+      return new First(node.charClass(), false);
+    }
+
+    @Override
+    public First visitOneToken(Node.OneToken<?> node) {
+      return new First(null, false);
+    }
+
+    @Override
+    public First visitPackrat(Node.Packrat<?, ?> node) {
+      return of(node.parser());
+    }
+
+    @Override
+    public First visitPure(Node.Pure<?, ?> node) {
+      return EMPTY;
+    }
+
+    @Override
+    public First visitRef(Node.Ref<?, ?> node) {
+      return node.target() == null ? UNKNOWN : of(node.target());
+    }
+
+    @Override
+    public First visitSequence(Node.Sequence<?, ?> node) {
+      return of(node.children());
+    }
+
+    @Override
+    public First visitTokenRun(Node.TokenRun<?> node) {
+      return new First(null, !node.atLeastOne());
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package com.parsific;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses delimiter-separated records, such as the lines of an NDJSON or CSV
+ * file, on several threads. The input is split into chunks of roughly the
+ * configured size, each ending just after a delimiter, and the chunks are
+ * parsed as tasks on a {@link ForkJoinPool} with one iterator each.
+ *
+ * <p>A record is the text between two delimiters; empty records are skipped.
+ * The record parser must consume the whole record. Results are returned in
+ * input order. If a record does not parse, the result is the first failure in
+ * input order, with its index counted from the start of the whole input.
+ *
+ * <p>Instances are immutable; the configuration methods return a copy.
+ */
+public final class ParallelParser<T> {
+
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+  /**
+   * Returns a driver for newline-separated records.
+   */
+  public static <T> ParallelParser<T> of(Parser<Character, T> record) {
+    return new ParallelParser<>(
+        record,
+        CharClass.of('\n'),
+        DEFAULT_CHUNK_SIZE,
+        ForkJoinPool.commonPool());
+  }
+
+  private final Parser<Character, T> record;
+  private final CharPredicate delimiter;
+  private final int chunkSize;
+  private final ForkJoinPool pool;
+
+  private ParallelParser(
+      Parser<Character, T> record,
+      CharPredicate delimiter,
+      int chunkSize,
+      ForkJoinPool pool) {
+    this.record = record;
+    this.delimiter = delimiter;
+    this.chunkSize = chunkSize;
+    this.pool = pool;
+  }
+
+  /**
+   * Returns a copy of this driver that splits chunks into at least size
+   * characters, or bytes for a file, where the input allows.
+   */
+  public ParallelParser<T> chunkSize(int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Chunk size must be positive.");
+    }
+    return new ParallelParser<>(record, delimiter, size, pool);
+  }
+
+  /**
+   * Returns a copy of this driver that ends records at characters passing
+   * the predicate. Files are split on bytes, so only ASCII characters are
+   * tested as delimiters there.
+   */
+  public ParallelParser<T> delimiter(CharPredicate predicate) {
+    return new ParallelParser<>(record, predicate, chunkSize, pool);
+  }
+
+  /**
+   * Returns a copy of this driver that runs its tasks on the provided pool.
+   */
+  public ParallelParser<T> pool(ForkJoinPool forkJoinPool) {
+    return new ParallelParser<>(record, delimiter, chunkSize, forkJoinPool);
+  }
+
+  public Either<ParserException, List<T>> parse(CharSequence input) {
+    CharInput chars = input instanceof String
+        ? new ArrayLikeString((String) input)
+        : new ArrayLikeCharSequence(input);
+    List<ForkJoinTask<Chunk<T>>> tasks = new ArrayList<>();
+    int start = 0;
+    while (start < input.length()) {
+      int end = Math.min(start + chunkSize, input.length());
+      while (end < input.length() && !delimiter.test(input.charAt(end - 1))) {
+        end++;
+      }
+      int chunkStart = start;
+      int chunkEnd = end;
+      tasks.add(pool.submit(() -> parseChunk(chars, chunkStart, chunkEnd)));
+      start = end;
+    }
+    return collect(tasks);
+  }
+
+  /**
+   * Parses a UTF-8 or ASCII file through a memory mapping; see
+   * {@link MappedInput}. Each chunk is decoded by its own task.
+   */
+  public Either<ParserException, List<T>> parseFile(Path path)
+      throws IOException {
+    ByteBuffer bytes = MappedInput.map(path);
+    List<ForkJoinTask<Chunk<T>>> tasks = new ArrayList<>();
+    int start = 0;
+    while (start < bytes.limit()) {
+      int end = Math.min(start + chunkSize, bytes.limit());
+      while (end < bytes.limit() && !isDelimiter(bytes.get(end - 1))) {
+        end++;
+      }
+      ByteBuffer slice = bytes.duplicate();
+      slice.limit(end);
+      slice.position(start);
+      MappedInput chars = new MappedInput(slice.slice());
+      tasks.add(pool.submit(() -> parseChunk(chars, 0, Integer.MAX_VALUE)));
+      start = end;
+    }
+    return collect(tasks);
+  }
+
+  /**
+   * Joins the tasks in order. A file chunk's failure indexes are counted
+   * from the chunk, so the lengths of the chunks before it, which their
+   * tasks counted while parsing, are added.
+   */
+  private Either<ParserException, List<T>> collect(
+      List<ForkJoinTask<Chunk<T>>> tasks) {
+    List<T> values = new ArrayList<>();
+    int offset = 0;
+    for (int i = 0; i < tasks.size(); i++) {
+      Chunk<T> chunk = tasks.get(i).join();
+      if (chunk.failure != null) {
+        for (int j = i + 1; j < tasks.size(); j++) {
+          tasks.get(j).cancel(false);
+        }
+        return Either.left(chunk.failure.shift(offset));
+      }
+      values.addAll(chunk.values);
+      if (chunk.relative) {
+        offset += chunk.length;
+      }
+    }
+    return Either.right(values);
+  }
+
+  private boolean isDelimiter(byte b) {
+    return b >= 0 && delimiter.test((char) b);
+  }
+
+  /**
+   * Parses the records from start to end, or to the end of the input, with
+   * one iterator, limiting its input to one record at a time. The chunk
+   * records how many characters it walked, so that a file chunk's length is
+   * known without decoding it again.
+   */
+  private Chunk<T> parseChunk(CharInput input, int start, int end) {
+    Record view = new Record(input);
+    UnwindingIterator<Character> iterator = new UnwindingIterator<>(view);
+    List<T> values = new ArrayList<>();
+    int recordStart = start;
+    while (recordStart < end && input.hasIndex(recordStart)) {
+      int recordEnd = recordStart;
+      while (recordEnd < end
+          && input.hasIndex(recordEnd)
+          && !delimiter.test(input.charAt(recordEnd))) {
+        recordEnd++;
+      }
+      if (recordEnd > recordStart) {
+        view.end = recordEnd;
+        iterator.reset(recordStart);
+        if (!record.apply(iterator)) {
+          return new Chunk<>(input, null, iterator.failure(), 0);
+        }
+        values.add(iterator.value());
+        if (iterator.hasNext()) {
+          // The record must be followed by its delimiter or the end.
+          iterator.expect(Combinators.EOF.instance);
+          iterator.expect(delimiter instanceof CharClass ? delimiter : null);
+          return new Chunk<>(input, null, iterator.failure(), 0);
+        }
+      }
+      recordStart = recordEnd < end && input.hasIndex(recordEnd)
+          ? recordEnd + 1
+          : recordEnd;
+    }
+    return new Chunk<>(input, values, null, recordStart - start);
+  }
+
+  /**
+   * The outcome of parsing one chunk. The failure is null on success, and
+   * the length is the number of characters in a chunk that parsed.
+   */
+  private static final class Chunk<T> {
+
+    // A file chunk is an input of its own, indexed from zero.
+    private final boolean relative;
+    private final List<T> values;
+    private final ParseFailure failure;
+    private final int length;
+
+    private Chunk(
+        CharInput input, List<T> values, ParseFailure failure, int length) {
+      this.relative = input instanceof MappedInput;
+      this.values = values;
+      this.failure = failure;
+      this.length = length;
+    }
+  }
+
+  /**
+   * A view of the input that ends at the end of the current record. Indexes
+   * are those of the underlying input.
+   */
+  private static final class Record implements CharInput {
+
+    private final CharInput input;
+    private int end;
+
+    private Record(CharInput input) {
+      this.input = input;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index >= end) {
+        throw new IndexOutOfBoundsException("Reached end of record: " + index);
+      }
+      return input.charAt(index);
+    }
+
+    @Override
+    public boolean hasIndex(int index) {
+      return index < end;
+    }
+
+    @Override
+    public String substring(int start, int end) {
+      return input.substring(start, end);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.parsific;
+
+/**
+ * A reusable iterator for running many parses, one after another, on one
+ * thread. Each parse moves the context's {@link UnwindingIterator} to the new
+ * input with {@link UnwindingIterator#restart}, so that its mark stack,
+ * failure state and memo table are allocated once rather than per parse.
+ * Together with a grammar built once and shared, parsing then allocates
+ * little more than the input's small wrapper and the result values.
+ *
+ * <p>{@link #current} keeps one context per thread. Virtual threads, which
+ * are many and short-lived, are better served by a context created per task
+ * with the constructor, which is cheap.
+ *
+ * <p>A context is not thread-safe. A parse started while another is running
+ * on the same context, from a parser that parses a nested document, runs on
+ * a fresh iterator instead. Results that read from the iterator after the
+ * parse has returned, such as the streams of {@link Parsers#stream}, must be
+ * parsed on their own iterator; a context moves on to empty input when a
+ * parse returns, so that it does not keep the document alive.
+ */
+public final class ParseContext {
+
+  private static final ThreadLocal<ParseContext> CURRENT =
+      ThreadLocal.withInitial(ParseContext::new);
+
+  private static final Input<?> EMPTY = new ArrayLikeString("");
+
+  private UnwindingIterator<?> iterator;
+  private boolean busy;
+
+  /**
+   * The context of the calling thread.
+   */
+  public static ParseContext current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Parses a character sequence.
+   */
+  public <T> Either<ParserException, T> parse(
+      Parser<Character, T> parser, CharSequence chars) {
+    // The wrapper cannot be reused, because spans keep it after the parse.
+    return parse(parser, chars instanceof String
+        ? new ArrayLikeString((String) chars)
+        : new ArrayLikeCharSequence(chars));
+  }
+
+  /**
+   * Parses any input.
+   */
+  @SuppressWarnings("unchecked")
+  public <S, T> Either<ParserException, T> parse(
+      Parser<S, T> parser, Input<S> input) {
+    if (busy) {
+      return parser.parse(new UnwindingIterator<>(input));
+    }
+    busy = true;
+    UnwindingIterator<S> iterator = this.iterator == null
+        ? new UnwindingIterator<>(input)
+        : ((UnwindingIterator<S>) this.iterator).restart(input);
+    this.iterator = iterator;
+    try {
+      return parser.parse(iterator);
+    } finally {
+      ((UnwindingIterator<Object>) iterator).restart(
+          (Input<Object>) EMPTY);
+      busy = false;
+    }
+  }
+
+  /**
+   * Memoizes the parses of this context in the provided table, which is
+   * cleared before each parse, or stops memoizing if it is null; see
+   * {@link UnwindingIterator#memoize}.
+   */
+  public ParseContext memoize(MemoTable memoTable) {
+    iterator().memoize(memoTable);
+    return this;
+  }
+
+  /**
+   * Records the named rules of this context's parses in the provided
+   * profiler, or stops recording if it is null; see
+   * {@link UnwindingIterator#profile}.
+   */
+  public ParseContext profile(Profiler profiler) {
+    iterator().profile(profiler);
+    return this;
+  }
+
+  private UnwindingIterator<?> iterator() {
+    if (iterator == null) {
+      iterator = new UnwindingIterator<>(EMPTY);
+    }
+    return iterator;
+  }
+}
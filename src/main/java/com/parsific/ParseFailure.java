@@ -0,0 +1,143 @@
+package com.parsific;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@link ParserException} returned by a failed parse. Parsers record
+ * failures as primitive state on the iterator and this exception is built
+ * once, where the parse returns, by {@link UnwindingIterator#failure}. It
+ * records no stack trace, which would only show the entry point.
+ *
+ * <p>Besides the index of the failure, it reports the furthest index at
+ * which any parser failed and what was expected there. After an or has
+ * backtracked, the error index is where the or began, while the furthest
+ * failure is usually the real problem.
+ */
+public final class ParseFailure extends ParserException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int furthestIndex;
+  private final Object[] expected;
+
+  ParseFailure(int errorIndex, int furthestIndex, Object[] expected) {
+    super(errorIndex);
+    this.furthestIndex = furthestIndex;
+    this.expected = expected;
+  }
+
+  /**
+   * Returns this failure with its indexes moved by offset, for a parse of
+   * part of a larger input.
+   */
+  ParseFailure shift(int offset) {
+    if (offset == 0) {
+      return this;
+    }
+    return new ParseFailure(
+        getErrorIndex() + offset,
+        furthestIndex < 0 ? furthestIndex : furthestIndex + offset,
+        expected);
+  }
+
+  /**
+   * The furthest index at which any parser failed.
+   */
+  public int getFurthestIndex() {
+    return furthestIndex;
+  }
+
+  /**
+   * Descriptions of what was expected at the furthest index, in the order
+   * the parsers tried them. Empty if only parsers that do not describe
+   * themselves failed there.
+   */
+  public List<String> getExpected() {
+    Set<String> descriptions = new LinkedHashSet<>();
+    for (Object item : expected) {
+      descriptions.add(describe(item));
+    }
+    return Collections.unmodifiableList(new ArrayList<>(descriptions));
+  }
+
+  @Override
+  public String getMessage() {
+    StringBuilder message = new StringBuilder("Parse failed at index ")
+        .append(getErrorIndex());
+    if (furthestIndex != getErrorIndex()) {
+      message.append("; furthest failure at index ").append(furthestIndex);
+    }
+    List<String> descriptions = getExpected();
+    if (!descriptions.isEmpty()) {
+      message.append(", expected ").append(descriptions.size() == 1
+          ? descriptions.get(0)
+          : "one of " + String.join(", ", descriptions));
+    }
+    return message.toString();
+  }
+
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return this;
+  }
+
+  private static String describe(Object item) {
+    if (item == Combinators.EOF.instance) {
+      return "end of input";
+    }
+    if (item instanceof Character) {
+      return "'" + escape((Character) item) + "'";
+    }
+    if (item instanceof String) {
+      StringBuilder string = new StringBuilder("\"");
+      for (char c : ((String) item).toCharArray()) {
+        string.append(escape(c));
+      }
+      return string.append('"').toString();
+    }
+    if (item instanceof CharClass) {
+      return describe((CharClass) item);
+    }
+    return String.valueOf(item);
+  }
+
+  private static String describe(CharClass chars) {
+    if (chars == CharClass.DIGIT) {
+      return "digit";
+    }
+    if (chars == CharClass.LETTER) {
+      return "letter";
+    }
+    if (chars == CharClass.WHITESPACE) {
+      return "whitespace";
+    }
+    int single = chars.singleChar();
+    if (single >= 0) {
+      return "'" + escape((char) single) + "'";
+    }
+    int[] ranges = chars.ranges();
+    if (ranges.length == 0) {
+      return "nothing";
+    }
+    StringBuilder set = new StringBuilder("[");
+    for (int i = 0; i < ranges.length && i < 16; i += 2) {
+      set.append(escape((char) ranges[i]));
+      if (ranges[i + 1] != ranges[i]) {
+        set.append(ranges[i + 1] == ranges[i] + 1 ? "" : "-")
+            .append(escape((char) ranges[i + 1]));
+      }
+    }
+    return set.append(ranges.length > 16 ? "...]" : "]").toString();
+  }
+
+  private static String escape(char c) {
+    if (c >= ' ' && c < 0x7f) {
+      return String.valueOf(c);
+    }
+    return String.format("\\u%04x", (int) c);
+  }
+}
@@ -9,6 +9,20 @@ public interface Parser<S, T> {
 
   Either<ParserException, T> parse(UnwindingIterator<S> iterator);
 
+  /**
+   * Runs the parser against the low-allocation result protocol. Returns true
+   * on success, leaving the value in {@link UnwindingIterator#value}, or false
+   * on failure, leaving the error index in
+   * {@link UnwindingIterator#failureIndex}. Combinators call this rather than
+   * parse; see {@link ContextParser}.
+   */
+  default boolean apply(UnwindingIterator<S> iterator) {
+    Either<ParserException, T> result = parse(iterator);
+    return result.isRight()
+        ? iterator.succeed(result.right())
+        : iterator.fail(result.left().getErrorIndex());
+  }
+
   default Either<ParserException, T> parse(S[] array) {
     return parse(
       new UnwindingIterator<S>(
@@ -21,9 +35,9 @@ public interface Parser<S, T> {
         new ArrayLikeList<S>(list)));
   }
 
-  default Either<ParserException, T> parse(ArrayLike<S> arrayLike) {
+  default Either<ParserException, T> parse(Input<S> input) {
     return parse(
-      new UnwindingIterator<>(arrayLike));
+      new UnwindingIterator<>(input));
   }
 
 }
@@ -2,47 +2,92 @@ package com.parsific;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Parsers {
 
+  /**
+   * The function of all, shared so that generated code can refer to it; see
+   * {@link CompiledParser}.
+   */
+  static final Function<Object[], LinkedList<Object>> TO_LIST =
+      (tokens) -> new LinkedList<>(Arrays.asList(tokens));
+
   /**
    * Returns a parser that returns a list of tokens, in order, if the
    * iterator has the provided tokens in the provided order.
    */
+  @SuppressWarnings("unchecked")
   public static <S> Parser<S, LinkedList<S>> all(S ... ss) {
-    return (iterator) -> {
-      LinkedList<S> list = new LinkedList<>();
-      for (int i = 0; i < ss.length; i++) {
-        if (iterator.hasNext() && iterator.peek().equals(ss[i])) {
-          list.add(iterator.next());
-        } else {
-          return Either.left(new ParserException(iterator.nextIndex()));
-        }
-      }
-      return Either.right(list);
-    };
+    Parser<S, ?>[] tokens = (Parser<S, ?>[]) new Parser<?, ?>[ss.length];
+    for (int i = 0; i < ss.length; i++) {
+      tokens[i] = one(ss[i]);
+    }
+    Function<Object[], LinkedList<S>> toList =
+        (Function<Object[], LinkedList<S>>) (Function<?, ?>) TO_LIST;
+    return new Node.Sequence<>(toList, tokens);
   }
 
   /**
    * Returns a parser that will succeed if the next token is equal to an
-   * element in the provided list.
+   * element in the provided list. Characters are matched against a compiled
+   * {@link CharClass}; other tokens by a hash lookup.
    */
   public static <S> Parser<S, S> any(S ... ss) {
-    return one(s -> {
-      for (int i  = 0; i< ss.length; i++) {
-        if (s.equals(ss[i])) {
-          return true;
-        }
-      }
-      return false;
-    });
+    if (areCharacters(ss)) {
+      return asTokenParser(Text.oneChar(toCharClass(ss)));
+    }
+    Set<S> set = new HashSet<S>(Arrays.asList(ss));
+    return one(set::contains);
+  }
+
+  /**
+   * Returns a parser for the same grammar that runs as a class generated for
+   * it: each rule becomes a method of straight-line code and small character
+   * classes are tested inline, so the JIT sees one target at every call.
+   * Values and failure indexes are the same as the interpreted parser's.
+   * Compiling needs the system Java compiler; if there is none, as on a JRE,
+   * the parser is returned unchanged. If the source written for the grammar
+   * does not compile, an IllegalStateException reports the compiler's
+   * diagnostics. The grammar is read once, so it should be complete, with
+   * every ref set. Compiling runs javac and takes a while, so it is meant for
+   * grammars that are built once and used for many parses, and is best done
+   * when the application asks for it rather than when a class loads;
+   * {@link GrammarGenerator} writes the same class at build time instead.
+   */
+  public static <S, T> Parser<S, T> compile(Parser<S, T> parser) {
+    return GrammarCompiler.compile(parser);
+  }
+
+  /**
+   * Returns a parser for the same grammar that runs on a stack on the heap
+   * rather than the Java stack, so that deeply nested input cannot overflow
+   * the thread's stack; see {@link IterativeParser}. A parse may be inside
+   * at most {@link IterativeParser#DEFAULT_MAX_DEPTH} refs at once.
+   */
+  public static <S, T> IterativeParser<S, T> iterative(Parser<S, T> parser) {
+    return iterative(parser, IterativeParser.DEFAULT_MAX_DEPTH);
+  }
+
+  /**
+   * Returns a parser for the same grammar that runs on a stack on the heap
+   * and fails any parse that is inside more than maxDepth refs at once.
+   */
+  public static <S, T> IterativeParser<S, T> iterative(
+      Parser<S, T> parser, int maxDepth) {
+    return new IterativeParser<>(parser, maxDepth);
   }
 
   /**
@@ -51,26 +96,18 @@ public class Parsers {
    * token fails the predicate.
    */
   public static <S> Parser<S, LinkedList<S>> many(Predicate<S> predicate) {
-    return (iterator) -> {
-      return Either.right(accumulate(iterator, predicate));
-    };
+    return new Node.TokenRun<>(predicate, false);
   }
 
+  /**
+   * Returns a parser that always succeeds and returns the results of the
+   * provided parser, applied until it fails. While push parsing, the results
+   * that more input cannot change are kept between attempts, so that a retry
+   * continues after them rather than parsing them again; see
+   * {@link PushParser}.
+   */
   public static <S, T> Parser<S, LinkedList<T>> manyParser(Parser<S, T> parser) {
-    return (iterator) -> {
-        LinkedList<T> list = new LinkedList<>();
-        while (iterator.hasNext()) {
-          iterator.wind();
-          Either<ParserException, T> result = parser.parse(iterator);
-          if (result.isLeft()) {
-            iterator.unwind();
-            return Either.right(list);
-          }
-          iterator.clearWind();
-          list.add(result.right());
-        }
-        return Either.right(list); 
-    };
+    return new Node.Many<>(parser, true);
   }
 
   /**
@@ -79,20 +116,28 @@ public class Parsers {
    * in order until a token fails the predicate.
    */
   public static <S> Parser<S, LinkedList<S>> many1(Predicate<S> predicate) {
-    return (iterator) -> {
-      LinkedList<S> list = accumulate(iterator, predicate);
-      if (list.isEmpty()) {
-        return Either.left(new ParserException(iterator.nextIndex()));
-      }
-      return Either.right(list);
-    };
+    return new Node.TokenRun<>(predicate, true);
+  }
+
+  /**
+   * Returns a parser that runs the provided parser as a rule with the
+   * provided name. When a parse is profiled, see {@link Profiler}, every
+   * named rule is reported on; otherwise naming costs a field read.
+   * Rules with the same name are reported together.
+   */
+  public static <S, T> Parser<S, T> named(String name, Parser<S, T> parser) {
+    return new Node.Named<>(name, parser);
   }
 
   /**
    * Returns a parser that succeeds when the next token is not equal to the
-   * provided token.
+   * provided token. Characters are matched against a compiled
+   * {@link CharClass}; other tokens by a hash lookup.
    */
   public static <S> Parser<S, S> not(S ... ss) {
+    if (areCharacters(ss)) {
+      return asTokenParser(Text.oneChar(toCharClass(ss).negate()));
+    }
     Set<S> set = new HashSet<S>(Arrays.asList(ss));
     return one(s -> !set.contains(s));
   }
@@ -118,24 +163,136 @@ public class Parsers {
    * predicate.
    */
   public static <S> Parser<S, S> one(Predicate<S> predicate) {
-    return (iterator) -> {
+    return new Node.OneToken<>(predicate);
+  }
+
+  /**
+   * Returns a reference to a parser that will be supplied later with
+   * {@link Node.Ref#set}, for rules that refer to themselves.
+   */
+  public static <S, T> Node.Ref<S, T> ref() {
+    return ref("ref");
+  }
+
+  /**
+   * Returns a named reference to a parser that will be supplied later with
+   * {@link Node.Ref#set}, for rules that refer to themselves.
+   */
+  public static <S, T> Node.Ref<S, T> ref(String name) {
+    return new Node.Ref<>(name);
+  }
+
+  /**
+   * Returns a parser that succeeds at once with a lazy stream of the records
+   * that follow, separated by the provided separator. Each record is parsed
+   * only when the stream pulls it, so records need not be held in memory
+   * together, and an input such as {@link StreamingInput} can discard what
+   * has been read. The stream ends at the end of the input; a trailing
+   * separator is allowed. A record or separator that does not parse throws
+   * an {@link UncheckedParserException} with its index when it is pulled.
+   *
+   * <p>The stream reads from the iterator the parser was applied to, so no
+   * other parser should use that iterator while the stream is open. The
+   * parser is not a {@link Node}: it runs its record and separator itself,
+   * as the stream is pulled, so a grammar sees it as a {@link Node.Leaf}.
+   */
+  public static <S, T> Parser<S, Stream<T>> stream(
+      Parser<S, T> record, Parser<S, ?> separator) {
+    return ContextParser.of((iterator) -> {
+      Iterator<T> records = new RecordIterator<>(iterator, record, separator);
+      return iterator.succeed(StreamSupport.stream(
+          Spliterators.spliteratorUnknownSize(records, Spliterator.ORDERED),
+          false));
+    });
+  }
+
+  private static boolean areCharacters(Object[] ss) {
+    if (ss.length == 0) {
+      return false;
+    }
+    for (int i = 0; i < ss.length; i++) {
+      if (!(ss[i] instanceof Character)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static CharClass toCharClass(Object[] characters) {
+    char[] chars = new char[characters.length];
+    for (int i = 0; i < characters.length; i++) {
+      chars[i] = (Character) characters[i];
+    }
+    return CharClass.of(chars);
+  }
+
+  /**
+   * Retypes a character parser for callers that only know the token type is
+   * Character at runtime.
+   */
+  @SuppressWarnings("unchecked")
+  private static <S> Parser<S, S> asTokenParser(
+      Parser<Character, Character> parser) {
+    return (Parser<S, S>) (Parser<?, ?>) parser;
+  }
+
+  /**
+   * Parses records as they are pulled; see {@link #stream}.
+   */
+  private static final class RecordIterator<S, T> implements Iterator<T> {
+
+    private final UnwindingIterator<S> iterator;
+    private final Parser<S, T> record;
+    private final Parser<S, ?> separator;
+    private boolean started;
+    private boolean ready;
+    private boolean done;
+    private T next;
+
+    private RecordIterator(
+        UnwindingIterator<S> iterator,
+        Parser<S, T> record,
+        Parser<S, ?> separator) {
+      this.iterator = iterator;
+      this.record = record;
+      this.separator = separator;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (ready || done) {
+        return ready;
+      }
+      if (started && iterator.hasNext() && !separator.apply(iterator)) {
+        throw failure();
+      }
+      started = true;
       if (!iterator.hasNext()) {
-        return Either.left(new ParserException(iterator.nextIndex()));
+        done = true;
+        return false;
       }
-      if (predicate.test(iterator.peek())) {
-        return Either.right(iterator.next());
+      if (!record.apply(iterator)) {
+        throw failure();
       }
-      return Either.left(
-        new ParserException(iterator.nextIndex()));
-    };
-  }
+      next = iterator.value();
+      ready = true;
+      return true;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException("No more records.");
+      }
+      T record = next;
+      next = null;
+      ready = false;
+      return record;
+    }
 
-  private static <S> LinkedList<S> accumulate(
-      PeekingIterator<S> iterator, Predicate<S> predicate) {
-    LinkedList<S> list = new LinkedList<>();
-    while (iterator.hasNext() && predicate.test(iterator.peek())) {
-      list.add(iterator.next());
+    private UncheckedParserException failure() {
+      done = true;
+      return new UncheckedParserException(iterator.failure());
     }
-    return list;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,248 @@
+package com.parsific;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records where parses spend their effort, per rule named with
+ * {@link Parsers#named}. Attach it to the iterator of a parse with
+ * {@link UnwindingIterator#profile}; results add up over every parse it is
+ * attached to, until it is cleared. Parses that are not profiled pay only
+ * for a null check at each named rule.
+ *
+ * <p>For each rule it counts the invocations, how many succeeded and failed,
+ * the characters consumed by the successful ones, and the characters that
+ * were scanned again after backtracking: those an invocation covered that
+ * the parse had already reached before the invocation began. It also
+ * measures inclusive time, spent in the rule and everything it calls, and
+ * exclusive time, spent in the rule but outside the named rules it calls.
+ * Time spent in a rule that calls itself counts once toward its inclusive
+ * time.
+ *
+ * <p>A profiler records one parse at a time.
+ */
+public final class Profiler {
+
+  private static final Comparator<Rule> BY_EXCLUSIVE_TIME =
+      Comparator.comparingLong(Rule::exclusiveNanos).reversed();
+
+  private final Map<String, Rule> rules = new LinkedHashMap<>();
+  private Rule[] frames = new Rule[16];
+  private int[] offsets = new int[16];
+  private int[] reached = new int[16];
+  private long[] starts = new long[16];
+  private long[] children = new long[16];
+  private int depth;
+  private int furthest;
+
+  /**
+   * Removes every result.
+   */
+  public void clear() {
+    rules.clear();
+    Arrays.fill(frames, null);
+    depth = 0;
+    furthest = 0;
+  }
+
+  /**
+   * The rules invoked so far, with the most exclusive time first.
+   */
+  public List<Rule> rules() {
+    return rules(BY_EXCLUSIVE_TIME);
+  }
+
+  /**
+   * The rules invoked so far, in the provided order. The rules are copies
+   * that later parses do not change.
+   */
+  public List<Rule> rules(Comparator<? super Rule> order) {
+    List<Rule> copies = new ArrayList<>();
+    for (Rule rule : rules.values()) {
+      copies.add(new Rule(rule));
+    }
+    copies.sort(order);
+    return copies;
+  }
+
+  /**
+   * Returns a table of the rules in the provided order.
+   */
+  public String report(Comparator<? super Rule> order) {
+    List<Rule> sorted = rules(order);
+    int width = "rule".length();
+    for (Rule rule : sorted) {
+      width = Math.max(width, rule.name().length());
+    }
+    String row = "%-" + width + "s %10s %10s %10s %10s %10s %10s %10s%n";
+    StringBuilder table = new StringBuilder(String.format(
+        row, "rule", "calls", "succeeded", "failed", "consumed",
+        "rescanned", "incl ms", "excl ms"));
+    for (Rule rule : sorted) {
+      table.append(String.format(
+          row,
+          rule.name(),
+          rule.invocations(),
+          rule.successes(),
+          rule.failures(),
+          rule.consumed(),
+          rule.rescanned(),
+          String.format("%.3f", rule.inclusiveNanos() / 1e6),
+          String.format("%.3f", rule.exclusiveNanos() / 1e6)));
+    }
+    return table.toString();
+  }
+
+  /**
+   * Returns a table of the rules with the most exclusive time first.
+   */
+  @Override
+  public String toString() {
+    return report(BY_EXCLUSIVE_TIME);
+  }
+
+  /**
+   * Called when the profiler is attached to the iterator of a new parse.
+   */
+  void start() {
+    Arrays.fill(frames, 0, depth, null);
+    depth = 0;
+    furthest = 0;
+  }
+
+  /**
+   * Called before the rule with the provided name runs at offset.
+   */
+  void enter(String name, int offset) {
+    if (depth == frames.length) {
+      int capacity = depth * 2;
+      frames = Arrays.copyOf(frames, capacity);
+      offsets = Arrays.copyOf(offsets, capacity);
+      reached = Arrays.copyOf(reached, capacity);
+      starts = Arrays.copyOf(starts, capacity);
+      children = Arrays.copyOf(children, capacity);
+    }
+    Rule rule = rules.get(name);
+    if (rule == null) {
+      rule = new Rule(name);
+      rules.put(name, rule);
+    }
+    rule.active++;
+    frames[depth] = rule;
+    offsets[depth] = offset;
+    reached[depth] = furthest;
+    children[depth] = 0;
+    // Read the clock last, so that the bookkeeping is not timed.
+    starts[depth++] = System.nanoTime();
+  }
+
+  /**
+   * Called after the rule most recently entered has run.
+   */
+  void exit(UnwindingIterator<?> iterator, boolean success) {
+    long elapsed = System.nanoTime() - starts[--depth];
+    Rule rule = frames[depth];
+    frames[depth] = null;
+    int start = offsets[depth];
+    int end = iterator.nextIndex();
+    // A failure may have looked further than where it left the iterator.
+    int scanned = success ? end : Math.max(end, iterator.failureIndex());
+    rule.invocations++;
+    if (success) {
+      rule.successes++;
+      rule.consumed += Math.max(0, end - start);
+    } else {
+      rule.failures++;
+    }
+    rule.rescanned += Math.max(0, Math.min(scanned, reached[depth]) - start);
+    furthest = Math.max(furthest, scanned);
+    if (--rule.active == 0) {
+      rule.inclusiveNanos += elapsed;
+    }
+    rule.exclusiveNanos += elapsed - children[depth];
+    if (depth > 0) {
+      children[depth - 1] += elapsed;
+    }
+  }
+
+  /**
+   * The results of one named rule.
+   */
+  public static final class Rule {
+
+    private final String name;
+    private long invocations;
+    private long successes;
+    private long failures;
+    private long consumed;
+    private long rescanned;
+    private long inclusiveNanos;
+    private long exclusiveNanos;
+    private int active;
+
+    private Rule(String name) {
+      this.name = name;
+    }
+
+    private Rule(Rule rule) {
+      this.name = rule.name;
+      this.invocations = rule.invocations;
+      this.successes = rule.successes;
+      this.failures = rule.failures;
+      this.consumed = rule.consumed;
+      this.rescanned = rule.rescanned;
+      this.inclusiveNanos = rule.inclusiveNanos;
+      this.exclusiveNanos = rule.exclusiveNanos;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public long invocations() {
+      return invocations;
+    }
+
+    public long successes() {
+      return successes;
+    }
+
+    public long failures() {
+      return failures;
+    }
+
+    /**
+     * The characters consumed by successful invocations.
+     */
+    public long consumed() {
+      return consumed;
+    }
+
+    /**
+     * The characters scanned again after the parse had backtracked over
+     * them.
+     */
+    public long rescanned() {
+      return rescanned;
+    }
+
+    public long inclusiveNanos() {
+      return inclusiveNanos;
+    }
+
+    public long exclusiveNanos() {
+      return exclusiveNanos;
+    }
+
+    @Override
+    public String toString() {
+      return name + ": " + invocations + " calls, " + successes
+          + " succeeded, " + failures + " failed, " + consumed
+          + " consumed, " + rescanned + " rescanned";
+    }
+  }
+}
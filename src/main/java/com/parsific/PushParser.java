@@ -0,0 +1,145 @@
+package com.parsific;
+
+/**
+ * Runs a parser over input that arrives in chunks, such as messages read from
+ * a socket. Each chunk is fed as it arrives, and the parser reports whether a
+ * message is complete, has failed, or needs more input.
+ *
+ * <p>A parse is retried from the start of the message whenever input is fed.
+ * A result is final only if the parser never looked past the input fed so
+ * far; otherwise more input could change it, and the status is
+ * {@link Status#NEEDS_INPUT}. To keep retries cheap, work that more input
+ * cannot change is kept between attempts: {@link Parsers#manyParser}, and so
+ * {@link Combinators#seperatedBy}, resume after their last such result, runs
+ * of characters such as {@link Text#manyChars} and {@link Text#span} resume
+ * after the characters they have already accepted, and
+ * {@link Combinators#memo} and {@link Combinators#packrat} keep such entries.
+ * Other parsers, such as a {@link Combinators#match} or the parts of an and
+ * before the one that needs more input, are run again on each attempt. A
+ * message made of repetitions and character runs is therefore read a bounded
+ * number of times, however the input is split; a parser that reads a long
+ * message any other way reads it again each time input is fed.
+ *
+ * <p>Once a message is done, the input before its end is discarded and the
+ * next call to {@link #resume} or a feed method starts the next message. A
+ * failure is final; the input after it is not parsed. Indexes are counted from
+ * the start of the stream. Values that view the input, such as a
+ * {@link Span}, must be used before the next message starts.
+ */
+public abstract class PushParser<S, T> {
+
+  public enum Status {
+    /** A message has been parsed; see {@link PushParser#result}. */
+    DONE,
+    /** The input does not match; see {@link PushParser#result}. */
+    FAILED,
+    /** The message continues past the input fed so far. */
+    NEEDS_INPUT
+  }
+
+  private final Parser<S, T> parser;
+  private UnwindingIterator<S> iterator;
+  private Status status;
+  private Either<ParserException, T> result;
+  private int start;
+  private boolean finished;
+
+  PushParser(Parser<S, T> parser) {
+    this.parser = parser;
+    this.status = Status.NEEDS_INPUT;
+  }
+
+  /**
+   * Marks the end of the input, so that parsers see the end rather than
+   * waiting for more, and parses what remains. Never returns
+   * {@link Status#NEEDS_INPUT}.
+   */
+  public Status finish() {
+    finished = true;
+    return resume();
+  }
+
+  /**
+   * True once {@link #finish} has been called.
+   */
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * Parses the current message with the input fed so far. If the previous
+   * message is done, starts the next one, which lets a caller parse every
+   * message held in one chunk.
+   */
+  public Status resume() {
+    if (status == Status.FAILED) {
+      return status;
+    }
+    if (status == Status.DONE) {
+      start = iterator.nextIndex();
+      discardBefore(start);
+      iterator.checkpoints().clear();
+      if (iterator.memoTable() != null) {
+        iterator.memoTable().clear();
+      }
+      result = null;
+    }
+    iterator.reset(start);
+    iterator.clearFailures();
+    int endHits = iterator.endHits();
+    iterator.mark();
+    boolean success = parser.apply(iterator);
+    iterator.release();
+    if (iterator.endHits() != endHits) {
+      result = null;
+      status = Status.NEEDS_INPUT;
+    } else if (success) {
+      result = Either.right(iterator.value());
+      status = Status.DONE;
+    } else {
+      result = Either.left(iterator.failure());
+      status = Status.FAILED;
+    }
+    return status;
+  }
+
+  /**
+   * The outcome of the last message, once it is done or has failed.
+   */
+  public Either<ParserException, T> result() {
+    if (result == null) {
+      throw new IllegalStateException("The message needs more input.");
+    }
+    return result;
+  }
+
+  public Status status() {
+    return status;
+  }
+
+  /**
+   * Starts reading from the subclass's input. Called once by the subclass
+   * constructor.
+   */
+  void attach(Input<S> input) {
+    this.iterator = new UnwindingIterator<>(input);
+    iterator.setCheckpoints(MemoTable.unbounded());
+  }
+
+  /**
+   * Drops the input before index, which will not be read again.
+   */
+  abstract void discardBefore(int index);
+
+  /**
+   * Reports a read past the input fed so far: more input may follow unless
+   * the parser has been finished. Returns false, as the index is not
+   * available.
+   */
+  boolean missing() {
+    if (!finished) {
+      iterator.hitEnd();
+    }
+    return false;
+  }
+}
@@ -0,0 +1,68 @@
+package com.parsific;
+
+/**
+ * A run of characters in the input, recorded by its start and end offsets.
+ * The characters are read from the input on demand, so parsing a span copies
+ * nothing; {@link #toString} copies them once when a String is needed.
+ *
+ * <p>On a {@link StreamingInput} the characters are only buffered while the
+ * parse can still backtrack to them, so a span must be read before the
+ * enclosing parse moves on.
+ */
+public final class Span implements CharSequence {
+
+  private final CharInput input;
+  private final int start;
+  private final int end;
+
+  Span(CharInput input, int start, int end) {
+    this.input = input;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * The offset of the first character, inclusive.
+   */
+  public int start() {
+    return start;
+  }
+
+  /**
+   * The offset after the last character.
+   */
+  public int end() {
+    return end;
+  }
+
+  public boolean isEmpty() {
+    return start == end;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length()) {
+      throw new IndexOutOfBoundsException("Index out of span: " + index);
+    }
+    return input.charAt(start + index);
+  }
+
+  @Override
+  public int length() {
+    return end - start;
+  }
+
+  @Override
+  public Span subSequence(int start, int end) {
+    if (start < 0 || end > length() || start > end) {
+      throw new IndexOutOfBoundsException(
+          "Invalid subsequence: " + start + ", " + end);
+    }
+    return new Span(input, this.start + start, this.start + end);
+  }
+
+  @Override
+  public String toString() {
+    return input.substring(start, end);
+  }
+}
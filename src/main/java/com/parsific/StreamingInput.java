@@ -0,0 +1,138 @@
+package com.parsific;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A {@link CharInput} that reads from a {@link Reader} on demand, so that an
+ * input does not have to be loaded into memory before it is parsed.
+ *
+ * <p>Characters are held in a buffer that is refilled as the parser advances.
+ * When the buffer is full, the characters before the attached iterator's
+ * {@link UnwindingIterator#committedIndex} are discarded: the parser can no
+ * longer backtrack to them. Memory is therefore bounded by the backtracking
+ * window rather than by the size of the input. Reading a discarded index
+ * throws an IllegalStateException.
+ *
+ * <p>The length of a stream is unknown until it has been read, so the input
+ * has no length; iterators call {@link #hasIndex} to find its end instead.
+ */
+public final class StreamingInput implements CharInput {
+
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  /**
+   * Returns an input that decodes the stream with the provided charset.
+   */
+  public static StreamingInput of(InputStream stream, Charset charset) {
+    return new StreamingInput(new InputStreamReader(stream, charset));
+  }
+
+  /**
+   * Returns an input that decodes the channel with the provided charset.
+   */
+  public static StreamingInput of(
+      ReadableByteChannel channel, Charset charset) {
+    return new StreamingInput(
+        Channels.newReader(channel, charset.newDecoder(), -1));
+  }
+
+  private final Reader reader;
+  private char[] buffer;
+  private int base;
+  private int limit;
+  private boolean eof;
+  private UnwindingIterator<?> iterator;
+
+  public StreamingInput(Reader reader) {
+    this(reader, DEFAULT_BUFFER_SIZE);
+  }
+
+  public StreamingInput(Reader reader, int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Buffer size must be positive.");
+    }
+    this.reader = reader;
+    this.buffer = new char[bufferSize];
+  }
+
+  @Override
+  public void attach(UnwindingIterator<?> iterator) {
+    this.iterator = iterator;
+  }
+
+  @Override
+  public char charAt(int index) {
+    int offset = index - base;
+    if (offset >= 0 && offset < limit) {
+      return buffer[offset];
+    }
+    if (offset < 0) {
+      throw new IllegalStateException(
+          "Index " + index + " has been discarded from the stream.");
+    }
+    if (!fill(index)) {
+      throw new IndexOutOfBoundsException("Reached end of stream: " + index);
+    }
+    return buffer[index - base];
+  }
+
+  @Override
+  public boolean hasIndex(int index) {
+    return index - base < limit || fill(index);
+  }
+
+  /**
+   * The number of characters the buffer can currently hold.
+   */
+  int capacity() {
+    return buffer.length;
+  }
+
+  /**
+   * Reads until index is buffered or the stream ends. Returns true if index
+   * is buffered.
+   */
+  private boolean fill(int index) {
+    try {
+      while (index - base >= limit && !eof) {
+        if (limit == buffer.length) {
+          compact();
+        }
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+          eof = true;
+        } else {
+          limit += read;
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return index - base < limit;
+  }
+
+  /**
+   * Discards the characters the iterator can no longer backtrack to, and
+   * grows the buffer if that does not free any space.
+   */
+  private void compact() {
+    int keep = iterator != null ? iterator.committedIndex() : base;
+    int discard = Math.min(keep - base, limit);
+    if (discard > 0) {
+      System.arraycopy(buffer, discard, buffer, 0, limit - discard);
+      base += discard;
+      limit -= discard;
+    }
+    if (limit == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+  }
+}
@@ -2,29 +2,125 @@ package com.parsific;
 
 import static com.parsific.Combinators.dropBoth;
 import static com.parsific.Combinators.map;
-import static com.parsific.Parsers.all;
-import static com.parsific.Parsers.any;
-import static com.parsific.Parsers.many;
-import static com.parsific.Parsers.not;
-import static com.parsific.Parsers.one;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 public final class Text {
- 
+
+  /**
+   * The function of digit, letter and notOneOf, shared so that generated
+   * code can refer to it; see {@link CompiledParser}.
+   */
+  static final Function<Character, String> CHAR_TO_STRING =
+      (c) -> c.toString();
+
   public static <T> Either<ParserException, T> parseString(
       Parser<Character, T> parser, String string) {
     return parser.parse(new UnwindingIterator<>(new ArrayLikeString(string)));
   }
 
+  public static <T> Either<ParserException, T> parseChars(
+      Parser<Character, T> parser, char[] chars) {
+    return parser.parse(new UnwindingIterator<>(new ArrayLikeCharArray(chars)));
+  }
+
+  public static <T> Either<ParserException, T> parseChars(
+      Parser<Character, T> parser, CharSequence chars) {
+    return parser.parse(
+        new UnwindingIterator<>(new ArrayLikeCharSequence(chars)));
+  }
+
+  /**
+   * Parses a UTF-8 or ASCII file through a memory mapping, so that the file is
+   * read in place rather than copied onto the heap; see {@link MappedInput}.
+   */
+  public static <T> Either<ParserException, T> parseFile(
+      Parser<Character, T> parser, Path path) throws IOException {
+    return parser.parse(new UnwindingIterator<>(MappedInput.open(path)));
+  }
+
+  /**
+   * Parses characters read from the reader as the parser needs them. Only the
+   * characters from the oldest backtrack point onward are buffered; see
+   * {@link StreamingInput}.
+   */
+  public static <T> Either<ParserException, T> parseReader(
+      Parser<Character, T> parser, Reader reader) {
+    return parser.parse(new UnwindingIterator<>(new StreamingInput(reader)));
+  }
+
+  /**
+   * Parses each of the inputs as a separate document on the common
+   * {@link ForkJoinPool}; see
+   * {@link #parseAll(Parser, Collection, Executor, boolean)}.
+   */
+  public static <T> List<Either<ParserException, T>> parseAll(
+      Parser<Character, T> parser, Collection<? extends CharSequence> inputs) {
+    return parseAll(parser, inputs, ForkJoinPool.commonPool(), false);
+  }
+
+  /**
+   * Parses each of the inputs as a separate document, spreading the work over
+   * one task per core on the executor, and the calling thread. Each task
+   * parses on its own {@link ParseContext}. The results are in input order,
+   * one per input, unless stopAtFailure is set: then inputs after the first
+   * that fails are not parsed, where they have not been already, and the
+   * results end with that failure.
+   *
+   * <p>The tasks share the parser, which must not keep parse state of its
+   * own; grammars built from nodes do not. A parser that throws stops the
+   * batch, and the exception is rethrown once the running tasks are done.
+   */
+  public static <T> List<Either<ParserException, T>> parseAll(
+      Parser<Character, T> parser,
+      Collection<? extends CharSequence> inputs,
+      Executor executor,
+      boolean stopAtFailure) {
+    return new Batch<>(parser, inputs, stopAtFailure).run(executor);
+  }
+
+  /**
+   * Returns a parser that succeeds if the next character is one of the
+   * provided characters.
+   */
+  public static Parser<Character, Character> anyChar(char ... chars) {
+    return oneChar(CharClass.of(chars));
+  }
+
   public static Parser<Character, Character> anyOf(String anyMatch) {
-    return any(toObjectArray(anyMatch));
+    return anyChar(anyMatch.toCharArray());
+  }
+
+  /**
+   * Returns a parser that picks among the provided cases by the next
+   * character. Each case declares the characters its parser can begin with, so
+   * the candidates for a character are found with a table lookup rather than by
+   * trying every alternative. When more than one case accepts the character,
+   * the candidates are tried in order, resetting the iterator after each fail,
+   * like {@link Combinators#or}. Cases built with {@link #otherwise} are
+   * candidates for every character and at the end of input.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> Parser<Character, T> choice(Case<T> ... cases) {
+    CharClass[] firstChars = new CharClass[cases.length];
+    Parser<Character, T>[] parsers =
+        (Parser<Character, T>[]) new Parser<?, ?>[cases.length];
+    for (int i = 0; i < cases.length; i++) {
+      firstChars[i] = cases[i].firstChars;
+      parsers[i] = cases[i].parser;
+    }
+    return new Node.Dispatch<>(firstChars, parsers);
   }
 
   public static <T> Parser<Character, T> clear(Parser<Character, T> parser) {
-    return dropBoth(parser, whitespace(), whitespace());
+    return dropBoth(parser, skipWhitespace(), skipWhitespace());
   }
 
   public static String concat(List<Character> list) {
@@ -43,39 +139,143 @@ public final class Text {
   }
 
   public static Parser<Character, String> digit() {
-    return map(one(Character::isDigit), c -> c.toString());
+    return map(oneChar(CharClass.DIGIT), CHAR_TO_STRING);
   }
 
   public static Parser<Character, String> digits() {
-    return map(many(Character::isDigit), Text::concat);
+    return manyChars(CharClass.DIGIT);
   }
 
   public static Parser<Character, String> letter() {
-    return map(one(c -> Character.isAlphabetic(c)), c -> c.toString());
+    return map(oneChar(CharClass.LETTER), CHAR_TO_STRING);
   }
 
   public static Parser<Character, String> letters() {
-    return map(many(c -> Character.isAlphabetic(c)), Text::concat);
+    return manyChars(CharClass.LETTER);
+  }
+
+  /**
+   * Returns a parser that always succeeds and returns the characters that pass
+   * the predicate, accumulated in order until a character fails the predicate.
+   */
+  public static Parser<Character, String> manyChars(CharPredicate predicate) {
+    return new Node.CharRun<>(predicate, false, Node.CharRun.Result.STRING);
+  }
+
+  /**
+   * Returns a parser that succeeds if at least the next character passes the
+   * predicate. Returns the characters that pass the predicate, accumulated in
+   * order until a character fails the predicate.
+   */
+  public static Parser<Character, String> many1Chars(CharPredicate predicate) {
+    return new Node.CharRun<>(predicate, true, Node.CharRun.Result.STRING);
   }
 
   public static Parser<Character, String> match(String string) {
-    return map(all(toObjectArray(string)), c -> string);
+    return new Node.Literal(string);
+  }
+
+  /**
+   * Returns a parser that succeeds if the next character is not one of the
+   * provided characters.
+   */
+  public static Parser<Character, Character> notChar(char ... chars) {
+    return oneChar(CharClass.of(chars).negate());
   }
 
   public static Parser<Character, String> notOneOf(String notMatch) {
-    return map(not(toObjectArray(notMatch)), c -> c.toString());
+    return map(notChar(notMatch.toCharArray()), CHAR_TO_STRING);
+  }
+
+  /**
+   * Returns a case for {@link #choice} whose parser can only succeed when the
+   * next character is in firstChars.
+   */
+  public static <T> Case<T> on(
+      CharClass firstChars, Parser<Character, T> parser) {
+    return new Case<>(firstChars, parser);
+  }
+
+  /**
+   * Returns a case for {@link #choice} whose parser can only succeed when the
+   * next character is one of firstChars.
+   */
+  public static <T> Case<T> on(
+      String firstChars, Parser<Character, T> parser) {
+    return on(CharClass.of(firstChars), parser);
+  }
+
+  /**
+   * Returns a parser that succeeds if the next character is equal to the
+   * provided character.
+   */
+  public static Parser<Character, Character> oneChar(char c) {
+    return oneChar(CharClass.of(c));
+  }
+
+  /**
+   * Returns a parser that succeeds if the next character passes the provided
+   * predicate. The character is tested without being boxed.
+   */
+  public static Parser<Character, Character> oneChar(CharPredicate predicate) {
+    return new Node.OneChar(predicate);
+  }
+
+  /**
+   * Returns a case for {@link #choice} that is tried for any character, and at
+   * the end of input. Use it for alternatives that may succeed without
+   * consuming input or whose first characters are not known.
+   */
+  public static <T> Case<T> otherwise(Parser<Character, T> parser) {
+    return new Case<>(null, parser);
+  }
+
+  /**
+   * Returns a parser that skips the characters that pass the predicate and
+   * always succeeds with a null value, so that nothing is allocated.
+   */
+  public static Parser<Character, Void> skipChars(CharPredicate predicate) {
+    return new Node.CharRun<>(predicate, false, Node.CharRun.Result.SKIP);
+  }
+
+  public static Parser<Character, Void> skipWhitespace() {
+    return skipChars(CharClass.WHITESPACE);
+  }
+
+  /**
+   * Returns a parser that always succeeds and returns the span of characters
+   * that pass the predicate, accumulated until a character fails the
+   * predicate. The characters are not copied.
+   */
+  public static Parser<Character, Span> span(CharPredicate predicate) {
+    return new Node.CharRun<>(predicate, false, Node.CharRun.Result.SPAN);
+  }
+
+  /**
+   * Returns a parser that succeeds if at least the next character passes the
+   * predicate, and returns the span of characters that pass it. The
+   * characters are not copied.
+   */
+  public static Parser<Character, Span> span1(CharPredicate predicate) {
+    return new Node.CharRun<>(predicate, true, Node.CharRun.Result.SPAN);
   }
 
   public static Parser<Character, String> whitespace() {
-    return map(many(Character::isWhitespace), Text::concat);
+    return manyChars(CharClass.WHITESPACE);
   }
 
-  private static Character[] toObjectArray(String string) {
-    char[] charArray = string.toCharArray();
-    Character[] characterArray = new Character[charArray.length];
-    for (int i = 0; i < charArray.length; i++) {
-      characterArray[i] = charArray[i];
+  /**
+   * An alternative for {@link #choice}: a parser and the characters it can
+   * begin with.
+   */
+  public static final class Case<T> {
+
+    private final CharClass firstChars;
+    private final Parser<Character, T> parser;
+
+    private Case(CharClass firstChars, Parser<Character, T> parser) {
+      this.firstChars = firstChars;
+      this.parser = parser;
     }
-    return characterArray;
   }
-}
\ No newline at end of file
+}
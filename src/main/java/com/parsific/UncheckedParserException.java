@@ -0,0 +1,31 @@
+package com.parsific;
+
+/**
+ * Wraps a {@link ParserException} where a parse error has to be thrown from
+ * code that cannot return an {@link Either}, such as a lazy stream of
+ * records; see {@link Parsers#stream}.
+ */
+public class UncheckedParserException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Wraps cause, keeping its message, which for a {@link ParseFailure}
+   * includes the furthest failure and what was expected there.
+   */
+  public UncheckedParserException(ParserException cause) {
+    super(cause.getMessage(), cause);
+  }
+
+  @Override
+  public ParserException getCause() {
+    return (ParserException) super.getCause();
+  }
+
+  /**
+   * The index in the input where the parse failed.
+   */
+  public int getErrorIndex() {
+    return getCause().getErrorIndex();
+  }
+}
@@ -1,37 +1,103 @@
 package com.parsific;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.Stack;
 
 public final class UnwindingIterator<E> implements PeekingIterator<E> {
 
-  private final ArrayLike<E> arrayLike;
+  private Input<E> input;
+  private CharInput charInput;
+  private ByteInput byteInput;
   private int next;
-  private final Stack<Integer> unwindStack;
+  private int[] marks;
+  private int depth;
+  private Object value;
+  private int failureIndex;
+  private int furthestFailure = -1;
+  private Object[] expected;
+  private int expectedCount;
+  private MemoTable memoTable;
+  private boolean packrat;
+  private MemoTable checkpoints;
+  private int endHits;
+  private int cuts;
+  // The marks index where the innermost scope begins, and for each open
+  // scope the floor and cut count of the one enclosing it.
+  private int cutFloor;
+  private int[] scopes;
+  private int scopeCount;
+  private Profiler profiler;
 
-  public UnwindingIterator(ArrayLike<E> arrayLike) {
-    this.arrayLike = arrayLike;
+  public UnwindingIterator(Input<E> input) {
+    this.marks = new int[16];
+    this.scopes = new int[16];
+    restart(input);
+  }
+
+  /**
+   * Moves the iterator to the start of a new input and clears what the
+   * previous parse left: marks, value, failures and cuts. A memo table is
+   * cleared and kept, and a profiler stays attached, so that a context
+   * reused for many parses allocates neither again; see
+   * {@link ParseContext}.
+   */
+  public UnwindingIterator<E> restart(Input<E> input) {
+    this.input = input;
+    this.charInput = asCharInput(input);
+    this.byteInput = asByteInput(input);
     this.next = 0;
-    this.unwindStack = new Stack<>();
+    this.depth = 0;
+    this.value = null;
+    clearFailures();
+    if (memoTable != null) {
+      memoTable.clear();
+    }
+    this.packrat = false;
+    this.checkpoints = null;
+    this.endHits = 0;
+    this.cuts = 0;
+    this.cutFloor = 0;
+    this.scopeCount = 0;
+    if (profiler != null) {
+      profiler.start();
+    }
+    input.attach(this);
+    return this;
   }
 
   public int nextIndex() {
     return next;
   }
 
+  /**
+   * The position of the oldest outstanding mark, or the current position if
+   * there is none. The iterator will not be reset behind this index.
+   */
+  public int committedIndex() {
+    return depth > 0 ? marks[0] : next;
+  }
+
   @Override
   public boolean hasNext() {
-    return next < arrayLike.length();
+    return input.hasIndex(next);
+  }
+
+  /**
+   * True if at least count more tokens remain.
+   */
+  public boolean hasRemaining(int count) {
+    return count <= 0 || input.hasIndex(next + count - 1);
   }
 
   @Override
   public E next() {
     if (hasNext()) {
-      return arrayLike.get(next++);
+      return input.get(next++);
     }
     throw new NoSuchElementException("Reached end of iterator.");
   }
@@ -39,21 +105,320 @@ public final class UnwindingIterator<E> implements PeekingIterator<E> {
   @Override
   public E peek() {
     if (hasNext()) {
-      return arrayLike.get(next);
+      return input.get(next);
     }
     throw new NoSuchElementException("Reached end of iterator.");
   }
 
-  public UnwindingIterator<E> clearWind() {
-    if (!unwindStack.isEmpty()) {
-      unwindStack.pop();
+  /**
+   * Returns the next token as a primitive byte and advances. Only valid when
+   * iterating over bytes; reading a {@link ByteInput} does not box.
+   */
+  public byte nextByte() {
+    byte b = peekByte();
+    next++;
+    return b;
+  }
+
+  /**
+   * Returns the next token as a primitive byte without advancing. Only valid
+   * when iterating over bytes; reading a {@link ByteInput} does not box.
+   */
+  public byte peekByte() {
+    if (hasNext()) {
+      return byteInput.byteAt(next);
+    }
+    throw new NoSuchElementException("Reached end of iterator.");
+  }
+
+  /**
+   * Returns the next token as a primitive char and advances. Only valid when
+   * iterating over characters; reading a {@link CharInput} does not box.
+   */
+  public char nextChar() {
+    char c = peekChar();
+    next++;
+    return c;
+  }
+
+  /**
+   * Returns the next token as a primitive char without advancing. Only valid
+   * when iterating over characters; reading a {@link CharInput} does not box.
+   */
+  public char peekChar() {
+    if (hasNext()) {
+      return charInput.charAt(next);
+    }
+    throw new NoSuchElementException("Reached end of iterator.");
+  }
+
+  /**
+   * Records a failed parse at the current position. Always returns false, so
+   * that a parser can {@code return iterator.fail();}.
+   */
+  public boolean fail() {
+    return fail(next);
+  }
+
+  /**
+   * Records a failed parse at the provided index. Always returns false.
+   * Failures are kept as primitive state; nothing is allocated until
+   * {@link #failure} is called.
+   */
+  public boolean fail(int index) {
+    this.failureIndex = index;
+    if (index > furthestFailure) {
+      furthestFailure = index;
+      expectedCount = 0;
     }
+    return false;
+  }
+
+  /**
+   * Records a failed parse at the current position, where the provided item
+   * was expected: a String, a Character, a {@link CharClass} or
+   * {@link Combinators#end}'s value. The items expected at the furthest
+   * failure are reported by {@link #failure}. A null item records nothing.
+   * Always returns false.
+   */
+  public boolean expect(Object item) {
+    fail(next);
+    if (item != null && next == furthestFailure) {
+      addExpected(item);
+    }
+    return false;
+  }
+
+  /**
+   * The index recorded by the most recent failed parse.
+   */
+  public int failureIndex() {
+    return failureIndex;
+  }
+
+  /**
+   * The furthest index at which any parser has failed during this parse, or
+   * -1 if none has.
+   */
+  public int furthestFailureIndex() {
+    return furthestFailure;
+  }
+
+  /**
+   * Returns the exception for the most recent failed parse. It is meant to
+   * be built once, where the parse returns to its caller.
+   */
+  public ParseFailure failure() {
+    Object[] items = expected == null
+        ? new Object[0]
+        : Arrays.copyOf(expected, expectedCount);
+    return new ParseFailure(failureIndex, furthestFailure, items);
+  }
+
+  /**
+   * Records the value of a successful parse. Always returns true, so that a
+   * parser can {@code return iterator.succeed(value);}.
+   */
+  public boolean succeed(Object value) {
+    this.value = value;
+    return true;
+  }
+
+  /**
+   * The value recorded by the most recent successful parse. Callers must read
+   * it before running another parser on this iterator.
+   */
+  @SuppressWarnings("unchecked")
+  public <V> V value() {
+    return (V) value;
+  }
+
+  /**
+   * The input viewed as bytes. Only valid when iterating over bytes.
+   */
+  ByteInput byteInput() {
+    return byteInput;
+  }
+
+  /**
+   * The input viewed as characters. Only valid when iterating over characters.
+   */
+  CharInput charInput() {
+    return charInput;
+  }
+
+  /**
+   * The table used to memoize results during this parse, or null.
+   */
+  public MemoTable memoTable() {
+    return memoTable;
+  }
+
+  /**
+   * Sets the table used to memoize results during this parse.
+   */
+  public UnwindingIterator<E> memoize(MemoTable memoTable) {
+    this.memoTable = memoTable;
+    return this;
+  }
+
+  /**
+   * The profiler recording this parse, or null.
+   */
+  public Profiler profiler() {
+    return profiler;
+  }
+
+  /**
+   * Records the rules of this parse named with {@link Parsers#named} in the
+   * provided profiler, or stops recording if it is null.
+   */
+  public UnwindingIterator<E> profile(Profiler profiler) {
+    this.profiler = profiler;
+    if (profiler != null) {
+      profiler.start();
+    }
+    return this;
+  }
+
+  /**
+   * Forgets the failures recorded so far, so that the next failure reported
+   * is one of the next attempt.
+   */
+  void clearFailures() {
+    failureIndex = 0;
+    furthestFailure = -1;
+    if (expected != null) {
+      Arrays.fill(expected, 0, expectedCount, null);
+    }
+    expectedCount = 0;
+  }
+
+  boolean isPackrat() {
+    return packrat;
+  }
+
+  void setPackrat(boolean packrat) {
+    this.packrat = packrat;
+  }
+
+  /**
+   * The table where repeating parsers record their progress while push
+   * parsing, or null; see {@link PushParser}.
+   */
+  MemoTable checkpoints() {
+    return checkpoints;
+  }
+
+  void setCheckpoints(MemoTable checkpoints) {
+    this.checkpoints = checkpoints;
+  }
+
+  /**
+   * The number of times a parser has looked past the end of the input that
+   * has arrived so far. A parse that did not change this count has a result
+   * that more input cannot change.
+   */
+  int endHits() {
+    return endHits;
+  }
+
+  /**
+   * Called by an input that has more data to come when a parser looks past
+   * what it holds.
+   */
+  void hitEnd() {
+    endHits++;
+  }
+
+  /**
+   * Records the current position as a backtrack point and returns it. For
+   * every call to mark, there should be a corresponding call to release once
+   * the position is no longer needed. Marks are kept in a primitive array, so
+   * marking allocates nothing unless the nesting grows past its capacity.
+   */
+  public int mark() {
+    if (depth == marks.length) {
+      marks = Arrays.copyOf(marks, depth * 2);
+    }
+    marks[depth++] = next;
+    return next;
+  }
+
+  /**
+   * Marks the current position, like {@link #mark}, and opens the scope of a
+   * parser that backtracks to it, such as a choice or a repetition. A cut
+   * made before the matching {@link #releaseScope} commits that parser
+   * alone: enclosing parsers keep their marks, and may still try other
+   * alternatives once the scope is released.
+   */
+  public int markScope() {
+    if (scopeCount == scopes.length) {
+      scopes = Arrays.copyOf(scopes, scopeCount * 2);
+    }
+    scopes[scopeCount++] = cutFloor;
+    scopes[scopeCount++] = cuts;
+    cutFloor = depth;
+    return mark();
+  }
+
+  /**
+   * Releases the mark made by {@link #markScope} and closes its scope,
+   * forgetting the cuts made in it.
+   */
+  public void releaseScope() {
+    release();
+    cuts = scopes[--scopeCount];
+    cutFloor = scopes[--scopeCount];
+  }
+
+  /**
+   * Commits the parse to the current position within the innermost scope;
+   * see {@link #markScope}. The marks made since the scope opened are moved
+   * here, so the committed index can advance and a streaming input may
+   * discard what has been read; the parser that opened the scope sees the
+   * change in {@link #cuts} and fails instead of trying another alternative.
+   */
+  public void cut() {
+    cuts++;
+    Arrays.fill(marks, cutFloor, depth, next);
+  }
+
+  /**
+   * The number of cuts made in the open scopes. A parser that backtracks
+   * reads it before running an alternative; if it has changed when the
+   * alternative fails, the alternative committed and no other may be tried.
+   */
+  public int cuts() {
+    return cuts;
+  }
+
+  /**
+   * Releases the most recent mark without moving the iterator.
+   */
+  public void release() {
+    if (depth > 0) {
+      depth--;
+    }
+  }
+
+  /**
+   * Moves the iterator to the provided position, usually one returned by
+   * mark. The mark remains outstanding, so the caller may reset to it again
+   * before releasing it.
+   */
+  public void reset(int mark) {
+    next = mark;
+  }
+
+  public UnwindingIterator<E> clearWind() {
+    release();
     return this;
   }
 
   public UnwindingIterator<E> unwind() {
-    if (!unwindStack.isEmpty()) {
-      next = unwindStack.pop();
+    if (depth > 0) {
+      next = marks[--depth];
     }
     return this;
   }
@@ -63,7 +428,79 @@ public final class UnwindingIterator<E> implements PeekingIterator<E> {
    * unwind or clearWind.
    */
   public UnwindingIterator<E> wind() {
-    unwindStack.push(next);
+    mark();
     return this;
   }
-}
\ No newline at end of file
+
+  private void addExpected(Object item) {
+    for (int i = 0; i < expectedCount; i++) {
+      if (expected[i].equals(item)) {
+        return;
+      }
+    }
+    if (expected == null) {
+      expected = new Object[8];
+    } else if (expectedCount == expected.length) {
+      expected = Arrays.copyOf(expected, expectedCount * 2);
+    }
+    expected[expectedCount++] = item;
+  }
+
+  /**
+   * Views the input as a CharInput, unboxing each element if it is not one
+   * already.
+   */
+  private static CharInput asCharInput(Input<?> input) {
+    if (input instanceof CharInput) {
+      return (CharInput) input;
+    }
+    if (input instanceof ByteInput) {
+      // Bytes cannot be read as characters, so there is nothing to view.
+      return null;
+    }
+    return new CharInput() {
+      @Override
+      public char charAt(int index) {
+        return (Character) input.get(index);
+      }
+
+      @Override
+      public boolean hasIndex(int index) {
+        return input.hasIndex(index);
+      }
+    };
+  }
+
+  /**
+   * Views the input as a ByteInput, unboxing each element if it is not one
+   * already.
+   */
+  private static ByteInput asByteInput(Input<?> input) {
+    if (input instanceof ByteInput) {
+      return (ByteInput) input;
+    }
+    if (input instanceof CharInput) {
+      return null;
+    }
+    return new ByteInput() {
+      @Override
+      public byte byteAt(int index) {
+        return (Byte) input.get(index);
+      }
+
+      @Override
+      public ByteBuffer slice(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = start; i < end; i++) {
+          bytes[i - start] = byteAt(i);
+        }
+        return ByteBuffer.wrap(bytes);
+      }
+
+      @Override
+      public boolean hasIndex(int index) {
+        return input.hasIndex(index);
+      }
+    };
+  }
+}
@@ -0,0 +1,223 @@
+package com.parsific;
+
+import static com.parsific.Bytes.*;
+import static com.parsific.Combinators.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class BytesTest {
+
+  @Test
+  public void oneByte_matchesByte() {
+    assertEquals(
+        Byte.valueOf((byte) 7),
+        parseBytes(oneByte((byte) 7), bytes(7)).right());
+    assertFalse(parseBytes(oneByte((byte) 7), bytes(8)).isRight());
+  }
+
+  @Test
+  public void anyByte_matchesAnyProvidedByte() {
+    Parser<Byte, Byte> anyP = anyByte((byte) 1, (byte) 2);
+    assertTrue(parseBytes(anyP, bytes(2)).isRight());
+    assertFalse(parseBytes(anyP, bytes(3)).isRight());
+  }
+
+  @Test
+  public void uint8_isUnsigned() {
+    assertEquals(
+        Integer.valueOf(0xFF), parseBytes(uint8(), bytes(0xFF)).right());
+  }
+
+  @Test
+  public void int16_readsBigEndian() {
+    assertEquals(
+        Short.valueOf((short) -2),
+        parseBytes(int16(), bytes(0xFF, 0xFE)).right());
+    assertEquals(
+        Integer.valueOf(0xFFFE),
+        parseBytes(uint16(), bytes(0xFF, 0xFE)).right());
+  }
+
+  @Test
+  public void int16LE_readsLittleEndian() {
+    assertEquals(
+        Integer.valueOf(0x0201),
+        parseBytes(uint16LE(), bytes(0x01, 0x02)).right());
+  }
+
+  @Test
+  public void int32_readsBothOrders() {
+    byte[] input = bytes(0x01, 0x02, 0x03, 0x04);
+    assertEquals(
+        Integer.valueOf(0x01020304), parseBytes(int32(), input).right());
+    assertEquals(
+        Integer.valueOf(0x04030201), parseBytes(int32LE(), input).right());
+  }
+
+  @Test
+  public void uint32_isUnsigned() {
+    assertEquals(
+        Long.valueOf(0xFFFFFFFFL),
+        parseBytes(uint32(), bytes(0xFF, 0xFF, 0xFF, 0xFF)).right());
+  }
+
+  @Test
+  public void int64_readsBothOrders() {
+    byte[] input = bytes(0x80, 0, 0, 0, 0, 0, 0, 0x01);
+    assertEquals(
+        Long.valueOf(0x8000000000000001L), parseBytes(int64(), input).right());
+    assertEquals(
+        Long.valueOf(0x0100000000000080L),
+        parseBytes(int64LE(), input).right());
+  }
+
+  @Test
+  public void int32_failsWithoutConsumingWhenTruncated() {
+    UnwindingIterator<Byte> iterator = toIterator(bytes(1, 2, 3));
+    assertFalse(int32().apply(iterator));
+    assertEquals(0, iterator.nextIndex());
+  }
+
+  @Test
+  public void varint_readsMultipleBytes() {
+    assertEquals(
+        Long.valueOf(300), parseBytes(varint(), bytes(0xAC, 0x02)).right());
+    assertEquals(Long.valueOf(1), parseBytes(varint(), bytes(0x01)).right());
+  }
+
+  @Test
+  public void varint_failsWhenTruncated() {
+    UnwindingIterator<Byte> iterator = toIterator(bytes(0xAC));
+    assertFalse(varint().apply(iterator));
+    assertEquals(0, iterator.nextIndex());
+  }
+
+  @Test
+  public void varint_readsLargestValue() {
+    assertEquals(
+        Long.valueOf(-1),
+        parseBytes(varint(), bytes(
+            0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x01))
+            .right());
+  }
+
+  @Test
+  public void varint_failsWhenTooLarge() {
+    UnwindingIterator<Byte> iterator = toIterator(bytes(
+        0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x02));
+    assertFalse(varint().apply(iterator));
+    assertEquals(0, iterator.nextIndex());
+  }
+
+  @Test
+  public void signedVarint_decodesZigzag() {
+    Parser<Byte, Long> varintP = signedVarint();
+    assertEquals(Long.valueOf(-1), parseBytes(varintP, bytes(1)).right());
+    assertEquals(Long.valueOf(1), parseBytes(varintP, bytes(2)).right());
+    assertEquals(
+        Long.valueOf(-150), parseBytes(varintP, bytes(0xAB, 0x02)).right());
+  }
+
+  @Test
+  public void lengthPrefixed_returnsViewOfBody() {
+    byte[] input = bytes(3, 'a', 'b', 'c', 'd');
+    ByteBuffer body = parseBytes(lengthPrefixed(uint8()), input).right();
+    assertEquals(3, body.remaining());
+    assertEquals('a', body.get(0));
+    assertEquals('c', body.get(2));
+    input[1] = 'z';
+    assertEquals('z', body.get(0));
+  }
+
+  @Test
+  public void lengthPrefixed_failsWhenBodyIsTruncated() {
+    assertFalse(
+        parseBytes(lengthPrefixed(uint8()), bytes(5, 'a', 'b')).isRight());
+  }
+
+  @Test
+  public void lengthPrefixed_framesSequence() {
+    Parser<Byte, ByteBuffer> frameP =
+        dropLeft(lengthPrefixed(uint16()), oneByte((byte) 0x7E));
+    Either<ParserException, ByteBuffer> result =
+        parseBytes(frameP, bytes(0x7E, 0, 2, 9, 8, 7));
+    assertEquals(2, result.right().remaining());
+    assertEquals(8, result.right().get(1));
+  }
+
+  @Test
+  public void manyBytes_returnsRunOfMatchingBytes() {
+    ByteBuffer run =
+        parseBytes(manyBytes((b) -> b != 0), bytes(1, 2, 0, 3)).right();
+    assertEquals(2, run.remaining());
+    assertEquals(0, parseBytes(manyBytes((b) -> b != 0), bytes(0)).right()
+        .remaining());
+  }
+
+  @Test
+  public void many1Bytes_failsOnNoMatch() {
+    assertFalse(parseBytes(many1Bytes((b) -> b != 0), bytes(0)).isRight());
+  }
+
+  @Test
+  public void match_matchesSequence() {
+    assertTrue(parseBytes(match((byte) 1, (byte) 2), bytes(1, 2, 3)).isRight());
+    assertFalse(parseBytes(match((byte) 1, (byte) 2), bytes(1, 3)).isRight());
+  }
+
+  @Test
+  public void skipBytes_skipsMatchingBytes() {
+    UnwindingIterator<Byte> iterator = toIterator(bytes(0, 0, 1));
+    assertTrue(skipBytes((b) -> b == 0).apply(iterator));
+    assertEquals(2, iterator.nextIndex());
+  }
+
+  @Test
+  public void slice_readsFixedLength() {
+    ByteBuffer view = parseBytes(slice(2), bytes(4, 5, 6)).right();
+    assertArrayEquals(bytes(4, 5), toArray(view));
+    assertFalse(parseBytes(slice(4), bytes(4, 5, 6)).isRight());
+  }
+
+  @Test
+  public void parseBuffer_startsAtBufferPosition() {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes(9, 1, 2));
+    buffer.get();
+    assertEquals(
+        Integer.valueOf(0x0102), parseBuffer(uint16(), buffer).right());
+    assertEquals(1, buffer.position());
+  }
+
+  @Test
+  public void parseBuffer_slicesShareBuffer() {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(4);
+    buffer.put(bytes(1, 2, 3, 4));
+    buffer.flip();
+    ByteBuffer view = parseBuffer(dropLeft(slice(2), uint8()), buffer).right();
+    assertArrayEquals(bytes(2, 3), toArray(view));
+  }
+
+  private static byte[] bytes(int ... values) {
+    byte[] bytes = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      bytes[i] = (byte) values[i];
+    }
+    return bytes;
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+
+  private static UnwindingIterator<Byte> toIterator(byte[] bytes) {
+    return new UnwindingIterator<>(new ArrayLikeByteArray(bytes));
+  }
+}
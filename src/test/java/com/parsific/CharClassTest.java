@@ -0,0 +1,62 @@
+package com.parsific;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CharClassTest {
+
+  @Test
+  public void of_containsOnlyProvidedChars() {
+    CharClass charClass = CharClass.of("ac\u4e2d");
+    assertTrue(charClass.test('a'));
+    assertTrue(charClass.test('c'));
+    assertTrue(charClass.test('\u4e2d'));
+    assertFalse(charClass.test('b'));
+    assertFalse(charClass.test('\u4e2e'));
+  }
+
+  @Test
+  public void range_containsBounds() {
+    CharClass charClass = CharClass.range('\u00f0', '\u0110');
+    assertTrue(charClass.test('\u00f0'));
+    assertTrue(charClass.test('\u00ff'));
+    assertTrue(charClass.test('\u0100'));
+    assertTrue(charClass.test('\u0110'));
+    assertFalse(charClass.test('\u00ef'));
+    assertFalse(charClass.test('\u0111'));
+  }
+
+  @Test
+  public void negate_containsComplement() {
+    CharClass charClass = CharClass.of("a\u4e2d").negate();
+    assertFalse(charClass.test('a'));
+    assertFalse(charClass.test('\u4e2d'));
+    assertTrue(charClass.test('b'));
+    assertTrue(charClass.test('\u0000'));
+    assertTrue(charClass.test('\uffff'));
+  }
+
+  @Test
+  public void union_containsBoth() {
+    CharClass charClass =
+        CharClass.range('a', 'f').union(CharClass.range('d', 'z'))
+            .union(CharClass.of("\u4e2d"));
+    assertTrue(charClass.test('a'));
+    assertTrue(charClass.test('z'));
+    assertTrue(charClass.test('\u4e2d'));
+    assertFalse(charClass.test('A'));
+  }
+
+  @Test
+  public void matching_agreesWithPredicate() {
+    for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+      if (CharClass.DIGIT.test((char) c) != Character.isDigit((char) c)
+          || CharClass.WHITESPACE.test((char) c)
+              != Character.isWhitespace((char) c)) {
+        throw new AssertionError("Mismatch at " + c);
+      }
+    }
+  }
+}
@@ -8,6 +8,7 @@ import static org.junit.Assert.assertEquals;
 
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Optional;
 import java.util.function.Function;
@@ -44,6 +45,82 @@ public class CombinatorsTest {
     assertEquals(new Character('A'), andP.parse(toIterator("abcde")).right());
   }
 
+  @Test
+  public void and_stopsAtFirstFailure() {
+    int[] calls = new int[1];
+    Parser<Character, Character> counted = map(one(), c -> {
+      calls[0]++;
+      return c;
+    });
+    Parser<Character, Character> andP =
+        and((a, b, c) -> 'A', one('a'), counted, counted);
+    assertFalse(andP.parse(toIterator("bcd")).isRight());
+    assertEquals(0, calls[0]);
+  }
+
+  @Test
+  public void commit_stopsOrFromTryingOtherAlternatives() {
+    Parser<Character, Character> orP =
+        or(commit(one('a'), one('b')), one('a'));
+    Either<ParserException, Character> result = orP.parse(toIterator("ac"));
+    assertTrue(result.isLeft());
+    assertEquals(1, result.left().getErrorIndex());
+    assertEquals(new Character('b'), orP.parse(toIterator("ab")).right());
+  }
+
+  @Test
+  public void commit_doesNotCutBeforePrefixMatches() {
+    Parser<Character, Character> orP =
+        or(commit(one('x'), one('b')), one('a'));
+    assertEquals(new Character('a'), orP.parse(toIterator("a")).right());
+  }
+
+  @Test
+  public void commit_failsRepetitionAfterCut() {
+    Parser<Character, LinkedList<Character>> manyP =
+        manyParser(commit(one('a'), one('b')));
+    assertEquals(2, manyP.parse(toIterator("abab")).right().size());
+    assertEquals(1, manyP.parse(toIterator("abc")).right().size());
+    assertEquals(3, manyP.parse(toIterator("abac")).left().getErrorIndex());
+  }
+
+  @Test
+  public void commit_stopsOnlyTheNearestOr() {
+    Parser<Character, Character> inner =
+        or(commit(one('a'), one('b')), one('x'));
+    Parser<Character, Character> orP =
+        or(inner, dropLeft(one('c'), one('a')));
+    assertEquals(1, inner.parse(toIterator("ac")).left().getErrorIndex());
+    assertEquals(new Character('c'), orP.parse(toIterator("ac")).right());
+  }
+
+  @Test
+  public void cut_isReplayedByMemo() {
+    Parser<Character, Character> ab = commit(one('a'), one('b'));
+    for (Parser<Character, Character> item : Arrays.asList(ab, memo(ab))) {
+      // The first alternative parses item where its cut stops at the inner
+      // or; the second, replaying it, must still commit the outer one.
+      Parser<Character, Character> orP = or(
+          dropRight(or(item), one('!')),
+          dropRight(item, one('?')),
+          dropLeft(one('x'), one('a'), one('b')));
+      assertEquals(2, orP.parse(toIterator("abx")).left().getErrorIndex());
+      assertEquals(new Character('b'), orP.parse(toIterator("ab?")).right());
+    }
+  }
+
+  @Test
+  public void cut_releasesBacktrackPoints() {
+    UnwindingIterator<Character> iterator = toIterator("abc");
+    int[] committed = new int[1];
+    Parser<Character, Character> probe = ContextParser.of((it) -> {
+      committed[0] = it.committedIndex();
+      return it.succeed('c');
+    });
+    or(dropLeft(probe, one('a'), one('b'), cut()), one('a')).parse(iterator);
+    assertEquals(2, committed[0]);
+  }
+
   @Test
   public void dropLeft_onlyReturnsDesiredValue() {
     Parser<Character, Character> dropLeftP =
@@ -144,6 +221,42 @@ public class CombinatorsTest {
     assertEquals(1, mappedP.parse(toIterator("a")).left().getErrorIndex());
   }
 
+  @Test
+  public void memo_doesNotReparseAtSameOffset() {
+    int[] calls = new int[1];
+    Parser<Character, Character> memoA = memo(map(one('a'), c -> {
+      calls[0]++;
+      return c;
+    }));
+    Parser<Character, Character> orP = or(
+        and((a, b) -> b, memoA, one('b')),
+        and((a, c) -> c, memoA, one('c')));
+    assertEquals(new Character('c'), orP.parse(toIterator("ac")).right());
+    assertEquals(1, calls[0]);
+  }
+
+  @Test
+  public void memo_replaysFailures() {
+    Parser<Character, Character> memoA = memo(one('a'));
+    Parser<Character, Character> orP = or(memoA, memoA, one('b'));
+    assertEquals(new Character('b'), orP.parse(toIterator("b")).right());
+  }
+
+  @Test
+  public void packrat_memoizesAlternatives() {
+    int[] calls = new int[1];
+    Parser<Character, Character> counted = map(one('a'), c -> {
+      calls[0]++;
+      return c;
+    });
+    Parser<Character, Character> inner = or(counted);
+    Parser<Character, Character> packratP = packrat(or(
+        and((a, b) -> b, inner, one('b')),
+        and((a, c) -> c, inner, one('c'))));
+    assertEquals(new Character('c'), packratP.parse(toIterator("ac")).right());
+    assertEquals(1, calls[0]);
+  }
+
   @Test
   public void or_returnsFirstPassingParser() {
     Parser<Character, Character> orP = or(one('a'), one('b'), one('c'));
@@ -209,6 +322,21 @@ public class CombinatorsTest {
     assertEquals(new Character(','), iterator.peek());
   }
 
+  @Test
+  public void seq_passesResultsInOrder() {
+    Parser<Character, String> seqP = seq(
+        results -> "" + results[0] + results[5],
+        one('a'), one('b'), one('c'), one('d'), one('e'), one('f'));
+    assertEquals("af", seqP.parse(toIterator("abcdef")).right());
+  }
+
+  @Test
+  public void seq_failsAtFirstFailingParser() {
+    Parser<Character, String> seqP = seq(
+        results -> "", one('a'), one('b'), one('c'), one('d'), one('e'), one('f'));
+    assertEquals(2, seqP.parse(toIterator("ab!def")).left().getErrorIndex());
+  }
+
   @Test
   public void testParserException_index() {
     Parser<Character, Character> oneBParser = and(
@@ -0,0 +1,133 @@
+package com.parsific;
+
+import static com.parsific.Combinators.*;
+import static com.parsific.Parsers.*;
+import static com.parsific.Text.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import javax.tools.ToolProvider;
+
+public class CompiledParserTest {
+
+  private static final boolean HAS_COMPILER =
+      ToolProvider.getSystemJavaCompiler() != null;
+
+  @Test
+  public void compile_generatesAClass() {
+    Parser<Character, String> parser = compile(match("abc"));
+    assertTrue(!HAS_COMPILER || parser instanceof CompiledParser);
+    assertEquals("abc", parseString(parser, "abc").right());
+    assertEquals(2, parseString(parser, "abx").left().getErrorIndex());
+  }
+
+  @Test
+  public void compile_parsesTheSameLanguage() {
+    Node.Ref<Character, Integer> sum = ref("sum");
+    sum.set(or(
+        and((a, b) -> a + b,
+            map(many1Chars(CharClass.DIGIT), Integer::parseInt),
+            dropLeft(sum, clear(oneChar('+')))),
+        map(many1Chars(CharClass.DIGIT), Integer::parseInt),
+        dropBoth(sum, oneChar('('), oneChar(')'))));
+    Parser<Character, Integer> compiled = compile(sum);
+    assertTrue(!HAS_COMPILER || compiled instanceof CompiledParser);
+    for (String input : Arrays.asList("1", "1 + 2", "(3)+4", "1+", "x", "")) {
+      Either<ParserException, Integer> expected = parseString(sum, input);
+      Either<ParserException, Integer> actual = parseString(compiled, input);
+      assertEquals(input, expected.isRight(), actual.isRight());
+      if (expected.isRight()) {
+        assertEquals(input, expected.right(), actual.right());
+      } else {
+        assertEquals(
+            input,
+            expected.left().getErrorIndex(),
+            actual.left().getErrorIndex());
+      }
+    }
+  }
+
+  @Test
+  public void load_reportsCompilerDiagnostics() {
+    try {
+      GrammarCompiler.load(
+          "com.parsific.generated.Broken",
+          "package com.parsific.generated; class Broken {");
+      assertFalse(HAS_COMPILER);
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("ERROR at line 1"));
+    }
+  }
+
+  @Test
+  public void compile_stopsBacktrackingAfterCut() {
+    Parser<Character, String> dispatch = choice(
+        on("x", commit(oneChar('x'), match("y"))),
+        on("x", match("xz")));
+    Parser<Character, String> element = or(
+        commit(oneChar('a'), match("b")), match("ac"), dispatch);
+    Parser<Character, LinkedList<String>> parser =
+        compile(manyParser(element));
+    assertEquals(3, parseString(parser, "abxyab").right().size());
+    assertEquals(1, parseString(compile(element), "ac").left().getErrorIndex());
+    assertEquals(
+        1, parseString(compile(dispatch), "xz").left().getErrorIndex());
+    // The cut commits the nearest or, so the repetition stops before it.
+    assertEquals(0, parseString(parser, "ac").right().size());
+    assertEquals(1, parseString(parser, "abc").right().size());
+  }
+
+  @Test
+  public void compile_dispatchesOnFirstChar() {
+    Parser<Character, String> parser = compile(choice(
+        on("ab", match("a!")),
+        on("a", match("a?")),
+        on("\u0100", match("\u0100")),
+        otherwise(pure("none"))));
+    assertEquals("a?", parseString(parser, "a?").right());
+    assertEquals("\u0100", parseString(parser, "\u0100").right());
+    assertEquals("none", parseString(parser, "").right());
+    assertEquals("none", parseString(parser, "b!").right());
+    Parser<Character, String> single =
+        compile(choice(on("a", match("ab")), on("c", match("cd"))));
+    assertEquals(1, parseString(single, "ax").left().getErrorIndex());
+  }
+
+  @Test
+  public void compile_runsTokenParsers() {
+    Parser<Character, LinkedList<Character>> digits =
+        compile(many1(Character::isDigit));
+    assertEquals(3, parseString(digits, "123x").right().size());
+    assertEquals(0, parseString(digits, "x").left().getErrorIndex());
+    Parser<Character, Character> sign = compile(any('+', '-'));
+    assertEquals('-', (char) parseString(sign, "-").right());
+    Parser<Character, LinkedList<Character>> word = compile(all('o', 'k'));
+    assertEquals(Arrays.asList('o', 'k'), parseString(word, "ok").right());
+    assertEquals(1, parseString(word, "ox").left().getErrorIndex());
+  }
+
+  @Test
+  public void compile_runsOpaqueAndMemoizedParsers() {
+    Parser<Character, Character> lambda = (iterator) -> iterator.hasNext()
+        ? Either.right(iterator.next())
+        : Either.left(new ParserException(iterator.nextIndex()));
+    Parser<Character, LinkedList<Character>> parser =
+        compile(packrat(manyParser(or(memo(oneChar('a')), lambda))));
+    assertEquals(3, parseString(parser, "abc").right().size());
+  }
+
+  @Test
+  public void compile_keepsPushParsingProgress() {
+    CharPushParser<LinkedList<String>> push = new CharPushParser<>(compile(
+        dropRight(manyParser(dropRight(digits(), oneChar(','))), end())));
+    assertEquals(PushParser.Status.NEEDS_INPUT, push.feed("1,2"));
+    assertEquals(PushParser.Status.NEEDS_INPUT, push.feed("3,"));
+    assertEquals(PushParser.Status.DONE, push.finish());
+    assertEquals(Arrays.asList("1", "23"), push.result().right());
+  }
+}
@@ -2,6 +2,7 @@ package com.parsific;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -21,4 +22,11 @@ public class EitherTest {
     assertFalse("Left is not present", right.left.isPresent());
   }
 
+  @Test
+  public void right_allowsNullValue() {
+    Either<Integer, String> right = Either.right(null);
+    assertTrue("Right is present", right.isRight());
+    assertEquals(null, right.right());
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.parsific;
+
+import static com.parsific.Combinators.*;
+import static com.parsific.Parsers.*;
+import static com.parsific.Text.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.function.Function;
+import javax.tools.ToolProvider;
+
+public class GrammarGeneratorTest {
+
+  private static final boolean HAS_COMPILER =
+      ToolProvider.getSystemJavaCompiler() != null;
+
+  public static final Function<String, Integer> PARSE_INT = Integer::parseInt;
+
+  public static final Function<String, Boolean> NEGATIVE = (s) -> true;
+
+  public static final QuadFunction<Boolean, Integer, Integer, Integer, Integer>
+      STEPS = (negative, first, last, step) ->
+          (negative ? -1 : 1) * (last - first) / step;
+
+  /**
+   * Counts the steps of ranges such as "-1..9/2".
+   */
+  private static final Parser<Character, LinkedList<Integer>> RANGES =
+      seperatedBy(
+          clear(and(
+              STEPS,
+              orDefault(map(match("-"), NEGATIVE), false),
+              map(many1Chars(CharClass.DIGIT), PARSE_INT),
+              dropLeft(
+                  map(many1Chars(CharClass.DIGIT), PARSE_INT), match("..")),
+              orDefault(dropLeft(map(digits(), PARSE_INT), oneChar('/')), 1))),
+          oneChar(','));
+
+  @Test
+  public void generate_refersToHolderFields() {
+    String source = GrammarGenerator.generate(
+        map(digits(), PARSE_INT), "com.example.Digits", getClass());
+    assertTrue(source.contains("package com.example;"));
+    assertTrue(source.contains("GrammarGeneratorTest.PARSE_INT"));
+    assertFalse(source.contains("constants"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void generate_rejectsUnnamedFunctions() {
+    GrammarGenerator.generate(
+        map(digits(), (s) -> s.length()), "com.example.Digits", getClass());
+  }
+
+  @Test
+  public void generate_parsesTheSameLanguage() throws Exception {
+    String source = GrammarGenerator.generate(
+        RANGES, "com.parsific.generated.Ranges", getClass());
+    Class<?> type =
+        GrammarCompiler.load("com.parsific.generated.Ranges", source);
+    assertEquals(HAS_COMPILER, type != null);
+    if (!HAS_COMPILER) {
+      return;
+    }
+    @SuppressWarnings("unchecked")
+    Parser<Character, LinkedList<Integer>> generated =
+        (Parser<Character, LinkedList<Integer>>)
+            type.getDeclaredConstructor().newInstance();
+    for (String input : new String[] {"1..9/2, -0..3", "1..", "", "4..8/x"}) {
+      Either<ParserException, LinkedList<Integer>> expected =
+          parseString(RANGES, input);
+      Either<ParserException, LinkedList<Integer>> actual =
+          parseString(generated, input);
+      if (expected.isRight()) {
+        assertEquals(input, expected.right(), actual.right());
+      } else {
+        assertEquals(
+            input,
+            expected.left().getErrorIndex(),
+            actual.left().getErrorIndex());
+      }
+    }
+    assertEquals(4, (int) parseString(generated, "1..9/2").right().get(0));
+  }
+}
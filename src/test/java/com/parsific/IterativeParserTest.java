@@ -0,0 +1,131 @@
+package com.parsific;
+
+import static com.parsific.Combinators.*;
+import static com.parsific.Parsers.*;
+import static com.parsific.Text.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+public class IterativeParserTest {
+
+  private static Node.Ref<Character, Integer> nested() {
+    Node.Ref<Character, Integer> nested = ref("nested");
+    return nested.set(or(
+        map(dropBoth(nested, oneChar('('), oneChar(')')), (n) -> n + 1),
+        map(match("x"), (x) -> 0)));
+  }
+
+  private static String nesting(int depth) {
+    StringBuilder string = new StringBuilder();
+    for (int i = 0; i < depth; i++) {
+      string.append('(');
+    }
+    string.append('x');
+    for (int i = 0; i < depth; i++) {
+      string.append(')');
+    }
+    return string.toString();
+  }
+
+  private static <T> void assertSameResults(
+      Parser<Character, T> parser, String ... inputs) {
+    Parser<Character, T> iterative = iterative(parser);
+    for (String input : inputs) {
+      Either<ParserException, T> expected = parseString(parser, input);
+      Either<ParserException, T> actual = parseString(iterative, input);
+      assertEquals(input, expected.isRight(), actual.isRight());
+      if (expected.isRight()) {
+        assertEquals(input, expected.right(), actual.right());
+      } else {
+        assertEquals(
+            input, expected.left().getMessage(), actual.left().getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void iterative_parsesTheSameLanguage() {
+    Node.Ref<Character, Integer> sum = ref("sum");
+    sum.set(or(
+        and((a, b) -> a + b,
+            map(many1Chars(CharClass.DIGIT), Integer::parseInt),
+            dropLeft(sum, clear(oneChar('+')))),
+        map(many1Chars(CharClass.DIGIT), Integer::parseInt),
+        dropBoth(sum, oneChar('('), oneChar(')'))));
+    assertSameResults(sum, "1", "1 + 2", "(3)+4", "1+", "x", "");
+    assertSameResults(
+        seperatedBy(choice(on("a", match("ab")), on("a", match("ac"))), ','),
+        "ab,ac", "ab,", "ad", "");
+    assertSameResults(
+        manyParser(or(commit(oneChar('a'), match("b")), match("ac"))),
+        "abab", "ac", "abc");
+    Parser<Character, String> item = memo(commit(oneChar('a'), match("b")));
+    assertSameResults(
+        or(dropRight(or(item), oneChar('!')),
+            dropRight(item, oneChar('?')),
+            match("abx")),
+        "ab!", "ab?", "abx");
+  }
+
+  @Test
+  public void iterative_combinesResultsOfNestedSequences() {
+    Parser<Character, String> letter = map(anyOf("abc"), String::valueOf);
+    Parser<Character, String> pair = and((a, b) -> a + b, letter, letter);
+    Parser<Character, String> parser = or(
+        and((a, b, c, d, e) -> a + b + c + d + e,
+            pair, letter, pair, letter, oneChar(';')),
+        seq((results) -> Arrays.toString(results), pair, pair),
+        and((a, b, c) -> a + b + c, letter, pair, letter));
+    assertSameResults(
+        parser, "aabcc;", "abab", "abca", "aabcc", "ab", "abx", "");
+  }
+
+  @Test
+  public void iterative_runsMemoizedAndOpaqueParsers() {
+    Parser<Character, Character> lambda = (iterator) -> iterator.hasNext()
+        ? Either.right(iterator.next())
+        : Either.left(new ParserException(iterator.nextIndex()));
+    Parser<Character, LinkedList<Character>> parser =
+        packrat(manyParser(or(memo(oneChar('a')), lambda)));
+    assertSameResults(parser, "abc", "");
+    assertSameResults(
+        or(dropRight(memo(digits()), oneChar(';')), memo(digits())),
+        "12;", "12");
+  }
+
+  @Test
+  public void iterative_followsNestingBeyondTheJavaStack() {
+    Parser<Character, Integer> parser = iterative(nested(), 200001);
+    assertEquals(
+        Integer.valueOf(200000), parseString(parser, nesting(200000)).right());
+  }
+
+  @Test
+  public void iterative_failsBeyondMaxDepth() {
+    Parser<Character, Integer> parser = iterative(nested(), 10);
+    assertEquals(Integer.valueOf(9), parseString(parser, nesting(9)).right());
+    ParseFailure failure =
+        (ParseFailure) parseString(parser, nesting(10)).left();
+    assertEquals(10, failure.getErrorIndex());
+    assertEquals(
+        Arrays.asList("nesting of at most 10 levels"), failure.getExpected());
+  }
+
+  @Test
+  public void iterative_reportsToProfiler() {
+    Profiler profiler = new Profiler();
+    Parser<Character, String> parser = iterative(or(
+        named("long", match("abcx")),
+        named("short", match("abc"))));
+    assertEquals("abc", parser.parse(new UnwindingIterator<>(
+        new ArrayLikeString("abcd")).profile(profiler)).right());
+    assertEquals(1, profiler.rules().get(0).invocations());
+    assertEquals(3, profiler.rules(
+        (a, b) -> b.name().compareTo(a.name())).get(0).rescanned());
+  }
+}
@@ -0,0 +1,109 @@
+package com.parsific;
+
+import static com.parsific.Text.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MappedInputTest {
+
+  private static final String TEXT = "ascii \u00e9t\u00e9 \u4e2d\u6587 \ud83d\ude00 end";
+
+  @Test
+  public void charAt_decodesUtf8InOrder() throws IOException {
+    Path file = write(TEXT.getBytes(StandardCharsets.UTF_8));
+    try {
+      MappedInput input = MappedInput.open(file);
+      for (int i = 0; i < TEXT.length(); i++) {
+        assertEquals(TEXT.charAt(i), input.charAt(i));
+      }
+      assertFalse(input.hasIndex(TEXT.length()));
+      assertEquals(TEXT.length(), input.length());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void charAt_decodesUtf8Backwards() throws IOException {
+    Path file = write(TEXT.getBytes(StandardCharsets.UTF_8));
+    try {
+      MappedInput input = MappedInput.open(file);
+      assertTrue(input.hasIndex(TEXT.length() - 1));
+      for (int i = TEXT.length() - 1; i >= 0; i--) {
+        assertEquals(TEXT.charAt(i), input.charAt(i));
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void charAt_replacesMalformedBytes() throws IOException {
+    Path file = write(new byte[] {'a', (byte) 0xE4, 'b', (byte) 0x80, 'c'});
+    try {
+      MappedInput input = MappedInput.open(file);
+      assertEquals("a\ufffdb\ufffdc", input.substring(0, 5));
+      assertEquals('\ufffd', input.charAt(3));
+      assertEquals('\ufffd', input.charAt(1));
+      assertEquals(5, input.length());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void charAt_replacesOverlongEncodings() throws IOException {
+    Path file = write(new byte[] {
+        'a', (byte) 0xC0, (byte) 0x80,
+        'b', (byte) 0xE0, (byte) 0x80, (byte) 0xAF,
+        'c', (byte) 0xF0, (byte) 0x82, (byte) 0x82, (byte) 0xAC});
+    try {
+      MappedInput input = MappedInput.open(file);
+      assertEquals("a\ufffdb\ufffdc\ufffd", input.substring(0, 6));
+      assertEquals('\ufffd', input.charAt(1));
+      assertEquals(6, input.length());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void charAt_replacesEncodedSurrogates() throws IOException {
+    Path file = write(new byte[] {
+        'a', (byte) 0xED, (byte) 0xA0, (byte) 0x80,
+        (byte) 0xED, (byte) 0xBF, (byte) 0xBF, 'b'});
+    try {
+      MappedInput input = MappedInput.open(file);
+      assertEquals("a\ufffd\ufffdb", input.substring(0, 4));
+      assertEquals('\ufffd', input.charAt(2));
+      assertEquals('\ufffd', input.charAt(1));
+      assertEquals(4, input.length());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void parseFile_parsesMappedFile() throws IOException {
+    Path file = write("hello world".getBytes(StandardCharsets.US_ASCII));
+    try {
+      assertEquals("hello", parseFile(letters(), file).right());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static Path write(byte[] bytes) throws IOException {
+    Path file = Files.createTempFile("parsific", ".txt");
+    Files.write(file, bytes);
+    return file;
+  }
+}
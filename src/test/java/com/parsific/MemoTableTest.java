@@ -0,0 +1,48 @@
+package com.parsific;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MemoTableTest {
+
+  @Test
+  public void find_returnsStoredResults() {
+    MemoTable table = MemoTable.unbounded();
+    table.putSuccess(1, 5, 8, "value", 0);
+    table.putFailure(2, 5, 6, 7, 0);
+
+    int success = table.find(1, 5);
+    assertTrue(table.isSuccess(success));
+    assertEquals(8, table.end(success));
+    assertEquals("value", table.value(success));
+
+    int failure = table.find(2, 5);
+    assertFalse(table.isSuccess(failure));
+    assertEquals(7, table.failureIndex(failure));
+    assertEquals(-1, table.find(1, 6));
+  }
+
+  @Test
+  public void unbounded_keepsEveryEntry() {
+    MemoTable table = MemoTable.unbounded();
+    for (int i = 0; i < 10000; i++) {
+      table.putSuccess(1, i, i + 1, null, i);
+    }
+    assertEquals(10000, table.size());
+    assertTrue(table.find(1, 0) >= 0);
+  }
+
+  @Test
+  public void window_evictsEntriesBehindCommittedOffset() {
+    MemoTable table = MemoTable.window(10);
+    for (int i = 0; i < 10000; i++) {
+      table.putSuccess(1, i, i + 1, null, i);
+    }
+    assertTrue(table.size() < 200);
+    assertEquals(-1, table.find(1, 0));
+    assertTrue(table.find(1, 9999) >= 0);
+  }
+}
@@ -0,0 +1,180 @@
+package com.parsific;
+
+import static com.parsific.Combinators.*;
+import static com.parsific.Parsers.*;
+import static com.parsific.Text.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+
+public class NodeTest {
+
+  @Test
+  public void combinators_buildInspectableNodes() {
+    Parser<Character, String> parser =
+        dropBoth(or(match("ab"), match("cd")), oneChar('('), oneChar(')'));
+    Node.Sequence<?, ?> outer = (Node.Sequence<?, ?>) parser;
+    assertEquals(0, outer.keep());
+    Node.Sequence<?, ?> inner = (Node.Sequence<?, ?>) outer.children().get(0);
+    assertEquals(1, inner.keep());
+    assertTrue(inner.children().get(0) instanceof Node.OneChar);
+    Node.Choice<?, ?> choice = (Node.Choice<?, ?>) inner.children().get(1);
+    assertEquals(
+        "cd", ((Node.Literal) choice.children().get(1)).string());
+  }
+
+  @Test
+  public void oneChar_exposesCharClass() {
+    Node.OneChar node = (Node.OneChar) oneChar('x');
+    assertTrue(node.charClass().test('x'));
+    assertNull(((Node.OneChar) oneChar((c) -> true)).charClass());
+  }
+
+  @Test
+  public void tokenParsers_buildInspectableNodes() {
+    KindVisitor kinds = new KindVisitor();
+    assertEquals("token", Node.of(one("x")).accept(kinds));
+    assertEquals("token", Node.of(any(1, 2)).accept(kinds));
+    assertEquals("tokens", Node.of(many1((Integer i) -> i > 0)).accept(kinds));
+    Node<String, ?> all = Node.of(all("a", "b"));
+    assertEquals("sequence", all.accept(kinds));
+    assertEquals("token", all.children().get(1).accept(kinds));
+  }
+
+  @Test
+  public void of_wrapsOpaqueParsers() {
+    Parser<Character, Character> lambda = (iterator) -> Either.right('a');
+    Node<Character, Character> node = Node.of(lambda);
+    assertSame(lambda, ((Node.Leaf<?, ?>) node).parser());
+    assertSame(node, Node.of(node));
+  }
+
+  @Test
+  public void ref_closesCycles() {
+    Node.Ref<Character, Integer> nested = ref("nested");
+    nested.set(or(
+        map(dropBoth(nested, oneChar('('), oneChar(')')), (n) -> n + 1),
+        pure(0)));
+    assertEquals(
+        Integer.valueOf(3), parseString(nested, "((()))").right());
+    List<Node<?, ?>> nodes = Node.reachable(nested);
+    assertSame(nested, nodes.get(0));
+    assertEquals(nodes.size(), new HashSet<>(nodes).size());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void ref_failsWhenUnset() {
+    parseString(Parsers.<Character, String>ref(), "a");
+  }
+
+  @Test
+  public void visitor_dispatchesOnKind() {
+    Node<Character, ?> node =
+        Node.of(map(manyParser(letter()), (list) -> list.size()));
+    String kinds = node.accept(new KindVisitor())
+        + ((Node.Map<?, ?, ?>) node).parser().accept(new KindVisitor());
+    assertEquals("mapmany", kinds);
+  }
+
+  /**
+   * Names the kind of a node.
+   */
+  private static final class KindVisitor implements Node.Visitor<String> {
+
+    @Override
+    public String visitCharRun(Node.CharRun<?> node) {
+      return "run";
+    }
+
+    @Override
+    public String visitChoice(Node.Choice<?, ?> node) {
+      return "choice";
+    }
+
+    @Override
+    public String visitCut(Node.Cut<?> node) {
+      return "cut";
+    }
+
+    @Override
+    public String visitDispatch(Node.Dispatch<?> node) {
+      return "dispatch";
+    }
+
+    @Override
+    public String visitEnd(Node.End<?> node) {
+      return "end";
+    }
+
+    @Override
+    public String visitLeaf(Node.Leaf<?, ?> node) {
+      return "leaf";
+    }
+
+    @Override
+    public String visitLiteral(Node.Literal node) {
+      return "literal";
+    }
+
+    @Override
+    public String visitMany(Node.Many<?, ?> node) {
+      return "many";
+    }
+
+    @Override
+    public String visitMap(Node.Map<?, ?, ?> node) {
+      return "map";
+    }
+
+    @Override
+    public String visitMemo(Node.Memo<?, ?> node) {
+      return "memo";
+    }
+
+    @Override
+    public String visitNamed(Node.Named<?, ?> node) {
+      return "named";
+    }
+
+    @Override
+    public String visitOneChar(Node.OneChar node) {
+      return "one";
+    }
+
+    @Override
+    public String visitOneToken(Node.OneToken<?> node) {
+      return "token";
+    }
+
+    @Override
+    public String visitPackrat(Node.Packrat<?, ?> node) {
+      return "packrat";
+    }
+
+    @Override
+    public String visitPure(Node.Pure<?, ?> node) {
+      return "pure";
+    }
+
+    @Override
+    public String visitRef(Node.Ref<?, ?> node) {
+      return "ref";
+    }
+
+    @Override
+    public String visitSequence(Node.Sequence<?, ?> node) {
+      return "sequence";
+    }
+
+    @Override
+    public String visitTokenRun(Node.TokenRun<?> node) {
+      return "tokens";
+    }
+  }
+}
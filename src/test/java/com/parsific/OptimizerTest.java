@@ -0,0 +1,124 @@
+package com.parsific;
+
+import static com.parsific.Combinators.*;
+import static com.parsific.Parsers.*;
+import static com.parsific.Text.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.LinkedList;
+
+public class OptimizerTest {
+
+  @Test
+  public void optimize_fusesLiterals() {
+    Parser<Character, String> parser = Optimizer.optimize(
+        dropLeft(digits(), match("ab"), oneChar('c'), match("d")));
+    Node.Sequence<?, ?> sequence = (Node.Sequence<?, ?>) parser;
+    assertEquals(2, sequence.children().size());
+    assertEquals(
+        "abcd", ((Node.Literal) sequence.children().get(0)).string());
+    assertEquals("12", parseString(parser, "abcd12").right());
+    assertEquals(2, parseString(parser, "abx").left().getErrorIndex());
+  }
+
+  @Test
+  public void optimize_flattensDrops() {
+    Parser<Character, String> parser = Optimizer.optimize(
+        dropBoth(
+            dropRight(digits(), oneChar(';')), whitespace(), whitespace()));
+    Node.Sequence<?, ?> sequence = (Node.Sequence<?, ?>) parser;
+    assertEquals(4, sequence.children().size());
+    assertEquals(1, sequence.keep());
+    assertEquals("42", parseString(parser, " 42; ").right());
+  }
+
+  @Test
+  public void optimize_fusesMaps() {
+    Parser<Character, Integer> parser = Optimizer.optimize(
+        map(map(digits(), Integer::parseInt), (n) -> n * 2));
+    Node.Map<?, ?, ?> node = (Node.Map<?, ?, ?>) parser;
+    assertTrue(node.parser() instanceof Node.CharRun);
+    assertEquals(Integer.valueOf(24), parseString(parser, "12").right());
+  }
+
+  @Test
+  public void optimize_skipsDroppedValues() {
+    Parser<Character, String> parser = Optimizer.optimize(
+        dropLeft(
+            digits(),
+            manyParser(many1Chars(CharClass.LETTER)),
+            oneChar(':')));
+    Node.Sequence<?, ?> sequence = (Node.Sequence<?, ?>) parser;
+    Node.Many<?, ?> many = (Node.Many<?, ?>) sequence.children().get(0);
+    assertTrue(!many.collects());
+    assertEquals(
+        Node.CharRun.Result.SKIP,
+        ((Node.CharRun<?>) many.element()).result());
+    assertEquals("7", parseString(parser, "abc:7").right());
+  }
+
+  @Test
+  public void optimize_hoistsSharedPrefix() {
+    Parser<Character, String> parser = Optimizer.optimize(or(
+        dropLeft(many1Chars(CharClass.LETTER), match("let"), whitespace()),
+        dropLeft(many1Chars(CharClass.DIGIT), match("let"), whitespace()),
+        match("x")));
+    Node.Choice<?, ?> choice = (Node.Choice<?, ?>) parser;
+    assertEquals(2, choice.children().size());
+    assertEquals("ab", parseString(parser, "let ab").right());
+    assertEquals("12", parseString(parser, "let 12").right());
+    assertEquals("x", parseString(parser, "x").right());
+    assertEquals(0, parseString(parser, "let ;").left().getErrorIndex());
+  }
+
+  @Test
+  public void optimize_doesNotHoistCuts() {
+    Parser<Character, Void> cut = cut();
+    Parser<Character, String> parser = Optimizer.optimize(or(
+        dropLeft(match("b"), match("a"), cut),
+        dropLeft(match("c"), match("a"), cut)));
+    assertEquals("b", parseString(parser, "ab").right());
+    assertEquals(1, parseString(parser, "ac").left().getErrorIndex());
+  }
+
+  @Test
+  public void optimize_hoistsSuffixOnlyWhenDisjoint() {
+    Parser<Character, String> disjoint = Optimizer.optimize(or(
+        dropRight(many1Chars(CharClass.LETTER), oneChar(';')),
+        dropRight(match("0"), oneChar(';'))));
+    Node.Choice<?, ?> choice = (Node.Choice<?, ?>) disjoint;
+    assertEquals(1, choice.children().size());
+    assertEquals("0", parseString(disjoint, "0;").right());
+
+    Parser<Character, String> overlapping = Optimizer.optimize(or(
+        dropRight(match("a"), oneChar(';')),
+        dropRight(match("ab"), oneChar(';'))));
+    assertEquals(
+        2, ((Node.Choice<?, ?>) overlapping).children().size());
+    assertEquals("ab", parseString(overlapping, "ab;").right());
+  }
+
+  @Test
+  public void optimize_keepsCycles() {
+    Node.Ref<Character, Integer> nested = ref("nested");
+    nested.set(or(
+        map(dropBoth(nested, oneChar('('), oneChar(')')), (n) -> n + 1),
+        pure(0)));
+    Parser<Character, Integer> parser = Optimizer.optimize(nested);
+    assertTrue(parser instanceof Node.Ref);
+    assertEquals(Integer.valueOf(3), parseString(parser, "((()))").right());
+  }
+
+  @Test
+  public void optimize_keepsOpaqueParsers() {
+    Parser<Character, LinkedList<Character>> parser =
+        Optimizer.optimize(manyParser((iterator) -> iterator.hasNext()
+            && iterator.peek() == 'a'
+                ? Either.right(iterator.next())
+                : Either.left(new ParserException(iterator.nextIndex()))));
+    assertEquals(3, parseString(parser, "aaab").right().size());
+  }
+}
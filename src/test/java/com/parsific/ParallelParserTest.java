@@ -0,0 +1,104 @@
+package com.parsific;
+
+import static com.parsific.Combinators.*;
+import static com.parsific.Text.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelParserTest {
+
+  private static final Parser<Character, Integer> NUMBER =
+      map(many1Chars(CharClass.DIGIT), Integer::parseInt);
+
+  @Test
+  public void parse_returnsRecordsInOrder() {
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      input.append(i).append('\n');
+    }
+    List<Integer> result =
+        ParallelParser.of(NUMBER).chunkSize(16).parse(input).right();
+    assertEquals(1000, result.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(Integer.valueOf(i), result.get(i));
+    }
+  }
+
+  @Test
+  public void parse_skipsEmptyRecords() {
+    assertEquals(
+        Arrays.asList(1, 2),
+        ParallelParser.of(NUMBER).parse("1\n\n2").right());
+  }
+
+  @Test
+  public void parse_reportsFirstFailureWithAbsoluteIndex() {
+    Either<ParserException, List<Integer>> result = ParallelParser.of(NUMBER)
+        .chunkSize(4)
+        .parse("10\n20\n3x\n4y\n");
+    assertFalse(result.isRight());
+    ParseFailure failure = (ParseFailure) result.left();
+    assertEquals(7, failure.getErrorIndex());
+    assertEquals(7, failure.getFurthestIndex());
+  }
+
+  @Test
+  public void parse_requiresWholeRecord() {
+    Either<ParserException, List<Integer>> result =
+        ParallelParser.of(NUMBER).parse("12\n34 \n");
+    ParseFailure failure = (ParseFailure) result.left();
+    assertEquals(5, failure.getErrorIndex());
+    assertEquals(
+        Arrays.asList("end of input", "'\\u000a'"), failure.getExpected());
+  }
+
+  @Test
+  public void delimiter_splitsOnPredicate() {
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      assertEquals(
+          Arrays.asList(1, 2, 3),
+          ParallelParser.of(NUMBER)
+              .delimiter(CharClass.of(",;"))
+              .chunkSize(1)
+              .pool(pool)
+              .parse("1,2;3")
+              .right());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void parseFile_countsFailureIndexInChars() throws IOException {
+    Path file = Files.createTempFile("parallel", ".txt");
+    try {
+      Files.write(file, "1\n\u00e9\n".getBytes(StandardCharsets.UTF_8));
+      ParallelParser<String> parser =
+          ParallelParser.of(many1Chars((c) -> true)).chunkSize(1);
+      assertEquals(
+          Arrays.asList("1", "\u00e9"), parser.parseFile(file).right());
+
+      // Arabic-Indic digits take two bytes each in UTF-8.
+      Files.write(
+          file, "\u0661\u0662\n1\nx\n".getBytes(StandardCharsets.UTF_8));
+      ParseFailure failure = (ParseFailure)
+          ParallelParser.of(NUMBER).chunkSize(1).parseFile(file).left();
+      assertEquals(5, failure.getErrorIndex());
+      assertEquals(5, failure.getFurthestIndex());
+      assertEquals(Arrays.asList("digit"), failure.getExpected());
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
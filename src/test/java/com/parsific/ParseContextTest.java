@@ -0,0 +1,79 @@
+package com.parsific;
+
+import static com.parsific.Combinators.*;
+import static com.parsific.Parsers.*;
+import static com.parsific.Text.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ParseContextTest {
+
+  @Test
+  public void parse_reusesContextAcrossInputs() {
+    ParseContext context = new ParseContext();
+    Parser<Character, String> parser = dropRight(match("ab"), end());
+    assertEquals("ab", context.parse(parser, "ab").right());
+    assertEquals(1, context.parse(parser, "ax").left().getErrorIndex());
+    assertEquals("ab", context.parse(parser, new StringBuilder("ab")).right());
+    assertEquals(2, context.parse(parser, "abc").left().getErrorIndex());
+  }
+
+  @Test
+  public void parse_doesNotKeepFailuresOfEarlierParses() {
+    ParseContext context = new ParseContext();
+    Parser<Character, String> parser =
+        dropRight(or(match("abc"), match("a")), end());
+    ParseFailure failure = (ParseFailure) context.parse(parser, "abx").left();
+    assertEquals(2, failure.getFurthestIndex());
+    failure = (ParseFailure) context.parse(parser, "q").left();
+    assertEquals(0, failure.getFurthestIndex());
+    assertEquals(
+        "Parse failed at index 0, expected 'a'", failure.getMessage());
+  }
+
+  @Test
+  public void parse_runsNestedParseOnFreshIterator() {
+    ParseContext context = new ParseContext();
+    Parser<Character, String> inner = match("b");
+    Parser<Character, String> outer = map(
+        match("a"), (a) -> a + context.parse(inner, "b").right());
+    assertEquals("ab", context.parse(outer, "a").right());
+    assertEquals("b", context.parse(inner, "b").right());
+  }
+
+  @Test
+  public void parse_spansSurviveReuse() {
+    ParseContext context = new ParseContext();
+    Parser<Character, Span> parser = span1(Character::isLetter);
+    Span span = context.parse(parser, "abc").right();
+    context.parse(parser, "xyz");
+    assertEquals("abc", span.toString());
+  }
+
+  @Test
+  public void parse_clearsMemoTableBetweenParses() {
+    MemoTable table = MemoTable.unbounded();
+    ParseContext context = new ParseContext().memoize(table);
+    Parser<Character, String> parser = memo(match("ab"));
+    assertEquals("ab", context.parse(parser, "ab").right());
+    assertTrue(context.parse(parser, "ax").isLeft());
+    assertEquals(0, table.size());
+  }
+
+  @Test
+  public void current_isPerThread() throws InterruptedException {
+    ParseContext context = ParseContext.current();
+    assertSame(context, ParseContext.current());
+    AtomicReference<ParseContext> other = new AtomicReference<>();
+    Thread thread = new Thread(() -> other.set(ParseContext.current()));
+    thread.start();
+    thread.join();
+    assertNotSame(context, other.get());
+  }
+}
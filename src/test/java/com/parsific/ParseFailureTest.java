@@ -0,0 +1,78 @@
+package com.parsific;
+
+import static com.parsific.Combinators.*;
+import static com.parsific.Parsers.*;
+import static com.parsific.Text.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ParseFailureTest {
+
+  private static ParseFailure failure(Parser<Character, ?> parser, String s) {
+    return (ParseFailure) parseString(parser, s).left();
+  }
+
+  private static <T> Parser<Character, Object> value(
+      Parser<Character, T> parser) {
+    return map(parser, (value) -> value);
+  }
+
+  @Test
+  public void failure_reportsFurthestFailure() {
+    Parser<Character, String> parser =
+        dropRight(or(match("abc"), match("a")), end());
+    ParseFailure failure = failure(parser, "abd");
+    assertEquals(1, failure.getErrorIndex());
+    assertEquals(2, failure.getFurthestIndex());
+    assertEquals(Collections.singletonList("'c'"), failure.getExpected());
+    assertEquals(
+        "Parse failed at index 1; furthest failure at index 2, expected 'c'",
+        failure.getMessage());
+  }
+
+  @Test
+  public void failure_mergesExpectationsAtTheSameIndex() {
+    Parser<Character, Object> parser = or(
+        value(oneChar('a')),
+        value(match("bc")),
+        value(anyOf("xyz")),
+        value(end()),
+        value(many1Chars(CharClass.DIGIT)));
+    ParseFailure failure = failure(parser, "q");
+    assertEquals(0, failure.getFurthestIndex());
+    assertEquals(
+        Arrays.asList("'a'", "'b'", "[x-z]", "end of input", "digit"),
+        failure.getExpected());
+  }
+
+  @Test
+  public void failure_hasNoStackTrace() {
+    assertEquals(0, failure(match("a"), "b").getStackTrace().length);
+  }
+
+  @Test
+  public void failure_withoutDescriptionHasNoExpectations() {
+    Parser<Character, Character> parser = one(c -> c == 'a');
+    ParseFailure failure = failure(parser, "b");
+    assertEquals(0, failure.getFurthestIndex());
+    assertTrue(failure.getExpected().isEmpty());
+    assertEquals("Parse failed at index 0", failure.getMessage());
+  }
+
+  @Test
+  public void failure_isTheSameWhenCompiled() {
+    Parser<Character, String> parser = dropRight(
+        or(match("abc"), choice(on("a", match("ab")), on("x", match("x")))),
+        end());
+    for (String input : Arrays.asList("abd", "q", "ab!")) {
+      ParseFailure expected = failure(parser, input);
+      ParseFailure actual = failure(compile(parser), input);
+      assertEquals(input, expected.getMessage(), actual.getMessage());
+    }
+  }
+}
@@ -4,12 +4,16 @@ import static com.parsific.Parsers.*;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class ParsersTest {
 
@@ -166,6 +170,62 @@ public class ParsersTest {
     assertFalse(result.isRight());
   }
 
+  @Test
+  public void one_applyLeavesValueOnIterator() {
+    UnwindingIterator<Character> text = toIterator("a");
+    assertTrue(one('a').apply(text));
+    assertEquals(new Character('a'), text.value());
+  }
+
+  @Test
+  public void one_applyLeavesFailureIndexOnIterator() {
+    UnwindingIterator<Character> text = toIterator("ab");
+    assertTrue(one('a').apply(text));
+    assertFalse(one('a').apply(text));
+    assertEquals(1, text.failureIndex());
+  }
+
+  @Test
+  public void stream_parsesRecordsWhenPulled() {
+    UnwindingIterator<Character> text = toIterator("ab,cd,ef");
+    Stream<String> records =
+        stream(Text.letters(), Text.oneChar(',')).parse(text).right();
+    assertEquals(0, text.nextIndex());
+    Iterator<String> iterator = records.iterator();
+    assertEquals("ab", iterator.next());
+    assertEquals(2, text.nextIndex());
+    assertEquals("cd", iterator.next());
+    assertEquals("ef", iterator.next());
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void stream_allowsTrailingSeparatorAndEmptyInput() {
+    Parser<Character, Stream<String>> streamP =
+        stream(Text.letters(), Text.oneChar('\n'));
+    assertEquals(
+        Arrays.asList("a", "b"),
+        streamP.parse(toIterator("a\nb\n")).right()
+            .collect(Collectors.toList()));
+    assertEquals(0, streamP.parse(toIterator("")).right().count());
+  }
+
+  @Test
+  public void stream_throwsWithErrorIndex() {
+    Stream<String> records = stream(Text.many1Chars(CharClass.LETTER),
+        Text.oneChar(',')).parse(toIterator("ab,cd;ef")).right();
+    Iterator<String> iterator = records.iterator();
+    assertEquals("ab", iterator.next());
+    assertEquals("cd", iterator.next());
+    try {
+      iterator.hasNext();
+      fail();
+    } catch (UncheckedParserException e) {
+      assertEquals(5, e.getErrorIndex());
+      assertEquals("Parse failed at index 5, expected ','", e.getMessage());
+    }
+  }
+
   private UnwindingIterator<Character> toIterator(String string) {
     return new UnwindingIterator<>(new ArrayLikeString(string));
   }
@@ -0,0 +1,123 @@
+package com.parsific;
+
+import static com.parsific.Combinators.*;
+import static com.parsific.Parsers.*;
+import static com.parsific.Text.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+public class ProfilerTest {
+
+  private static <T> Either<ParserException, T> profile(
+      Parser<Character, T> parser, String string, Profiler profiler) {
+    return parser.parse(
+        new UnwindingIterator<>(new ArrayLikeString(string)).profile(profiler));
+  }
+
+  private static Profiler.Rule rule(Profiler profiler, String name) {
+    for (Profiler.Rule rule : profiler.rules()) {
+      if (rule.name().equals(name)) {
+        return rule;
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void named_runsParserWhenNotProfiled() {
+    Parser<Character, String> parser = named("abc", match("abc"));
+    assertEquals("abc", parseString(parser, "abc").right());
+    assertEquals(2, parseString(parser, "abx").left().getErrorIndex());
+  }
+
+  @Test
+  public void profile_countsInvocations() {
+    Profiler profiler = new Profiler();
+    profile(manyParser(named("digit", digit())), "123a", profiler);
+    Profiler.Rule digit = rule(profiler, "digit");
+    assertEquals(4, digit.invocations());
+    assertEquals(3, digit.successes());
+    assertEquals(1, digit.failures());
+    assertEquals(3, digit.consumed());
+    assertEquals(0, digit.rescanned());
+  }
+
+  @Test
+  public void profile_countsRescannedCharacters() {
+    Profiler profiler = new Profiler();
+    Parser<Character, String> parser = or(
+        named("long", match("abcx")),
+        named("short", match("abc")));
+    assertEquals("abc", profile(parser, "abcd", profiler).right());
+    assertEquals(0, rule(profiler, "long").rescanned());
+    assertEquals(1, rule(profiler, "long").failures());
+    assertEquals(3, rule(profiler, "short").rescanned());
+    assertEquals(3, rule(profiler, "short").consumed());
+  }
+
+  @Test
+  public void profile_splitsTimeBetweenRules() {
+    Profiler profiler = new Profiler();
+    Node.Ref<Character, String> nested = ref("nested");
+    nested.set(or(
+        dropBoth(nested, oneChar('('), oneChar(')')),
+        named("x", match("x"))));
+    Parser<Character, String> parser = named("nested", nested);
+    assertEquals("x", profile(parser, "(((x)))", profiler).right());
+    assertNull(rule(profiler, "missing"));
+    long exclusive = 0;
+    for (Profiler.Rule rule : profiler.rules()) {
+      assertTrue(rule.exclusiveNanos() <= rule.inclusiveNanos());
+      exclusive += rule.exclusiveNanos();
+    }
+    assertEquals(rule(profiler, "nested").inclusiveNanos(), exclusive);
+  }
+
+  @Test
+  public void profile_recursiveRuleCountsTimeOnce() {
+    Profiler profiler = new Profiler();
+    Node.Ref<Character, String> nested = ref("nested");
+    nested.set(named("nested", or(
+        dropBoth(nested, oneChar('('), oneChar(')')),
+        match("x"))));
+    assertEquals("x", profile(nested, "(((x)))", profiler).right());
+    Profiler.Rule rule = rule(profiler, "nested");
+    assertEquals(4, rule.invocations());
+    assertEquals(rule.inclusiveNanos(), rule.exclusiveNanos());
+  }
+
+  @Test
+  public void rules_sortsAndReports() {
+    Profiler profiler = new Profiler();
+    Parser<Character, String> parser = dropLeft(
+        named("b", match("b")), named("a", match("a")));
+    profile(parser, "ab", profiler);
+    List<Profiler.Rule> rules =
+        profiler.rules(Comparator.comparing(Profiler.Rule::name));
+    assertEquals("a", rules.get(0).name());
+    assertEquals("b", rules.get(1).name());
+    String report = profiler.toString();
+    assertTrue(report.startsWith("rule"));
+    assertEquals(3, report.split("\n").length);
+    profiler.clear();
+    assertTrue(profiler.rules().isEmpty());
+  }
+
+  @Test
+  public void compile_profilesNamedRules() {
+    Profiler profiler = new Profiler();
+    Parser<Character, String> parser = compile(or(
+        named("long", match("abcx")),
+        named("short", match("abc"))));
+    assertEquals("abc", profile(parser, "abcd", profiler).right());
+    assertEquals(1, rule(profiler, "long").invocations());
+    assertEquals(3, rule(profiler, "short").rescanned());
+    assertEquals("abc", parseString(parser, "abc").right());
+  }
+}
@@ -0,0 +1,145 @@
+package com.parsific;
+
+import static com.parsific.Combinators.*;
+import static com.parsific.Parsers.*;
+import static com.parsific.Text.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PushParserTest {
+
+  private static final Parser<Character, LinkedList<String>> LIST =
+      dropRight(seperatedBy(digits(), ','), oneChar(';'));
+
+  @Test
+  public void feed_needsInputUntilMessageEnds() {
+    CharPushParser<LinkedList<String>> push = new CharPushParser<>(LIST);
+    assertEquals(PushParser.Status.NEEDS_INPUT, push.feed("12,3"));
+    assertEquals(PushParser.Status.NEEDS_INPUT, push.feed("4,"));
+    assertEquals(PushParser.Status.DONE, push.feed("5;"));
+    assertEquals(Arrays.asList("12", "34", "5"), push.result().right());
+  }
+
+  @Test
+  public void resume_parsesNextMessageInSameChunk() {
+    CharPushParser<LinkedList<String>> push = new CharPushParser<>(LIST);
+    assertEquals(PushParser.Status.DONE, push.feed("1;2,3;4"));
+    assertEquals(Arrays.asList("1"), push.result().right());
+    assertEquals(PushParser.Status.DONE, push.resume());
+    assertEquals(Arrays.asList("2", "3"), push.result().right());
+    assertEquals(PushParser.Status.NEEDS_INPUT, push.resume());
+    assertEquals(PushParser.Status.DONE, push.feed(";"));
+    assertEquals(Arrays.asList("4"), push.result().right());
+  }
+
+  @Test
+  public void feed_failsWithAbsoluteIndex() {
+    CharPushParser<LinkedList<String>> push = new CharPushParser<>(LIST);
+    assertEquals(PushParser.Status.DONE, push.feed("1;"));
+    assertEquals(PushParser.Status.FAILED, push.feed("2x"));
+    assertEquals(3, push.result().left().getErrorIndex());
+    assertEquals(PushParser.Status.FAILED, push.feed("3;"));
+  }
+
+  @Test
+  public void finish_endsTheInput() {
+    CharPushParser<String> push = new CharPushParser<>(digits());
+    assertEquals(PushParser.Status.NEEDS_INPUT, push.feed("12"));
+    assertEquals(PushParser.Status.NEEDS_INPUT, push.feed("34"));
+    assertEquals(PushParser.Status.DONE, push.finish());
+    assertEquals("1234", push.result().right());
+    assertTrue(push.isFinished());
+  }
+
+  @Test
+  public void feed_doesNotReparseFinishedElements() {
+    AtomicInteger parses = new AtomicInteger();
+    Parser<Character, String> element = map(
+        dropRight(digits(), oneChar(',')),
+        (s) -> {
+          parses.incrementAndGet();
+          return s;
+        });
+    CharPushParser<LinkedList<String>> push = new CharPushParser<>(
+        dropRight(manyParser(element), oneChar(';')));
+    String input = "1,2,3,4,5,6,7,8,9,10,";
+    for (int i = 0; i < input.length(); i++) {
+      assertEquals(
+          PushParser.Status.NEEDS_INPUT,
+          push.feed(input.substring(i, i + 1)));
+    }
+    assertEquals(PushParser.Status.DONE, push.feed(";"));
+    assertEquals(10, push.result().right().size());
+    assertEquals(10, parses.get());
+  }
+
+  @Test
+  public void feed_doesNotRescanCharacterRuns() {
+    AtomicInteger tests = new AtomicInteger();
+    Parser<Character, String> body = manyChars((c) -> {
+      tests.incrementAndGet();
+      return c != ';';
+    });
+    CharPushParser<String> push =
+        new CharPushParser<>(dropRight(body, oneChar(';')));
+    for (int i = 0; i < 100; i++) {
+      assertEquals(PushParser.Status.NEEDS_INPUT, push.feed("a"));
+    }
+    assertEquals(PushParser.Status.DONE, push.feed(";"));
+    assertEquals(100, push.result().right().length());
+    assertEquals(101, tests.get());
+  }
+
+  @Test
+  public void feed_reportsOnlyFailuresOfTheCurrentMessage() {
+    Parser<Character, String> parser =
+        dropRight(or(match("ab;x"), match("ab")), oneChar(';'));
+    CharPushParser<String> push = new CharPushParser<>(parser);
+    assertEquals(PushParser.Status.DONE, push.feed("ab;q"));
+    assertEquals(PushParser.Status.FAILED, push.resume());
+    ParseFailure failure = (ParseFailure) push.result().left();
+    assertEquals(3, failure.getFurthestIndex());
+    assertEquals(Arrays.asList("'a'"), failure.getExpected());
+  }
+
+  @Test
+  public void feed_splitsLengthPrefixedBytes() {
+    BytePushParser<ByteBuffer> push =
+        new BytePushParser<>(Bytes.lengthPrefixed(Bytes.uint16()));
+    assertEquals(PushParser.Status.NEEDS_INPUT, push.feed(new byte[] {0}));
+    assertEquals(PushParser.Status.NEEDS_INPUT, push.feed(new byte[] {2, 7}));
+    assertEquals(
+        PushParser.Status.DONE,
+        push.feed(ByteBuffer.wrap(new byte[] {8, 0, 1})));
+    ByteBuffer body = push.result().right();
+    assertEquals(2, body.remaining());
+    assertEquals(8, body.get(1));
+    assertEquals(PushParser.Status.NEEDS_INPUT, push.resume());
+  }
+
+  @Test
+  public void memo_doesNotKeepResultsThatReachTheEnd() {
+    CharPushParser<String> push =
+        new CharPushParser<>(dropRight(memo(digits()), oneChar(';')));
+    assertEquals(PushParser.Status.NEEDS_INPUT, push.feed("12"));
+    assertEquals(PushParser.Status.DONE, push.feed("3;"));
+    assertEquals("123", push.result().right());
+  }
+
+  @Test
+  public void end_waitsForFinish() {
+    CharPushParser<String> push =
+        new CharPushParser<>(dropRight(match("ab"), end()));
+    assertEquals(PushParser.Status.NEEDS_INPUT, push.feed("ab"));
+    assertEquals(PushParser.Status.DONE, push.finish());
+    assertFalse(push.result().isLeft());
+  }
+}
@@ -0,0 +1,112 @@
+package com.parsific;
+
+import static com.parsific.Combinators.*;
+import static com.parsific.Parsers.*;
+import static com.parsific.Text.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedList;
+import java.util.stream.Stream;
+
+public class StreamingInputTest {
+
+  @Test
+  public void parseReader_readsWholeInput() {
+    Either<ParserException, String> result =
+        parseReader(letters(), new StringReader("abcdef"));
+    assertEquals("abcdef", result.right());
+  }
+
+  @Test
+  public void hasIndex_detectsEndOfStream() {
+    StreamingInput input = new StreamingInput(new StringReader("ab"), 1);
+    assertTrue(input.hasIndex(1));
+    assertFalse(input.hasIndex(2));
+    assertEquals('b', input.charAt(1));
+  }
+
+  @Test
+  public void of_decodesInputStream() {
+    StreamingInput input = StreamingInput.of(
+        new ByteArrayInputStream("h\u00e9".getBytes(StandardCharsets.UTF_8)),
+        StandardCharsets.UTF_8);
+    assertEquals('\u00e9', input.charAt(1));
+    assertFalse(input.hasIndex(2));
+  }
+
+  @Test
+  public void buffer_isBoundedByBacktrackingWindow() {
+    int records = 100000;
+    StreamingInput input =
+        new StreamingInput(new RepeatingReader("ab;", records), 16);
+    Parser<Character, LinkedList<String>> parser =
+        manyParser(dropRight(letters(), oneChar(';')));
+    LinkedList<String> result = parser.parse(input).right();
+    assertEquals(records, result.size());
+    assertEquals("ab", result.getLast());
+    assertTrue(input.capacity() <= 64);
+  }
+
+  @Test
+  public void stream_releasesConsumedRecords() {
+    int records = 100000;
+    StreamingInput input =
+        new StreamingInput(new RepeatingReader("ab;", records), 16);
+    Stream<String> stream =
+        Parsers.stream(letters(), oneChar(';')).parse(input).right();
+    assertEquals(records, stream.filter("ab"::equals).count());
+    assertTrue(input.capacity() <= 64);
+  }
+
+  @Test
+  public void backtracking_keepsMarkedCharacters() {
+    StreamingInput input =
+        new StreamingInput(new StringReader("abcdefgh!"), 2);
+    Parser<Character, String> parser =
+        or(match("abcdefghi"), match("abcdefgh!"));
+    assertEquals("abcdefgh!", parser.parse(input).right());
+  }
+
+  /**
+   * A reader that repeats a string a number of times, so that long inputs are
+   * never held in memory.
+   */
+  private static class RepeatingReader extends Reader {
+
+    private final String string;
+    private int remaining;
+    private int position;
+
+    RepeatingReader(String string, int times) {
+      this.string = string;
+      this.remaining = times;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+      if (remaining == 0) {
+        return -1;
+      }
+      int read = 0;
+      while (read < length && remaining > 0) {
+        buffer[offset + read++] = string.charAt(position++);
+        if (position == string.length()) {
+          position = 0;
+          remaining--;
+        }
+      }
+      return read;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -5,13 +5,29 @@ import static com.parsific.Parsers.*;
 import static com.parsific.Text.*;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class TextTest {
 
+  @Test
+  public void anyChar_returnsMatch() {
+    Parser<Character, Character> anyP = anyChar('a', 'b', 'c');
+    assertEquals(new Character('c'), anyP.parse(toIterator("c")).right());
+  }
+
+  @Test
+  public void anyChar_failsOnNoMatch() {
+    assertFalse(anyChar('a', 'b', 'c').parse(toIterator("d")).isRight());
+  }
+
   @Test
   public void anyOf_suceedsIfAMatchIsFound() {
     assertEquals(
@@ -23,6 +39,37 @@ public class TextTest {
     assertFalse(anyOf("abcd").parse(toIterator("e")).isRight());
   }
 
+  @Test
+  public void choice_dispatchesOnFirstCharacter() {
+    Parser<Character, String> choiceP = choice(
+        on("a", match("ab")), on("c", match("cd")), on("e", match("ef")));
+    assertEquals("cd", choiceP.parse(toIterator("cd")).right());
+  }
+
+  @Test
+  public void choice_triesOverlappingCasesInOrder() {
+    Parser<Character, String> choiceP = choice(
+        on("a", match("ab")), on("ab", match("ac")));
+    assertEquals("ac", choiceP.parse(toIterator("ac")).right());
+  }
+
+  @Test
+  public void choice_failsWhenNoCaseAccepts() {
+    Parser<Character, String> choiceP = choice(on("a", match("ab")));
+    UnwindingIterator<Character> iterator = toIterator("b");
+    assertFalse(choiceP.parse(iterator).isRight());
+    assertEquals(new Character('b'), iterator.peek());
+  }
+
+  @Test
+  public void choice_triesOtherwiseAtEndOfInput() {
+    Parser<Character, String> choiceP =
+        choice(on("a", match("ab")), otherwise(letters()));
+    assertEquals("", choiceP.parse(toIterator("")).right());
+    assertEquals(
+        "\u4e2d\u6587", choiceP.parse(toIterator("\u4e2d\u6587")).right());
+  }
+
   @Test
   public void concat_joinsAListOfCharsToString() {
     assertEquals("a;b;c", concat(Arrays.asList('a', 'b', 'c'), ";"));
@@ -55,6 +102,22 @@ public class TextTest {
       "abcd", letters().parse(toIterator("abcd123")).right());
   }
 
+  @Test
+  public void manyChars_returnsAllMatches() {
+    Parser<Character, String> manyP = manyChars(c -> c == 'a' || c == 'b');
+    assertEquals("aab", manyP.parse(toIterator("aabc")).right());
+  }
+
+  @Test
+  public void manyChars_succeedsOnNoMatches() {
+    assertEquals("", manyChars(c -> c == 'a').parse(toIterator("b")).right());
+  }
+
+  @Test
+  public void many1Chars_failsOnZeroMatches() {
+    assertFalse(many1Chars(c -> c == 'a').parse(toIterator("b")).isRight());
+  }
+
   @Test
   public void match_returnsMatchedString() {
     assertEquals(
@@ -76,6 +139,124 @@ public class TextTest {
     assertFalse(notOneOf("abc").parse(toIterator("c")).isRight());
   }
 
+  @Test
+  public void notChar_succeedsOnFailedMatch() {
+    Parser<Character, Character> notP = notChar('a', 'b', 'c');
+    assertEquals(new Character('d'), notP.parse(toIterator("d")).right());
+  }
+
+  @Test
+  public void notChar_failsOnMatch() {
+    assertFalse(notChar('a', 'b', 'c').parse(toIterator("a")).isRight());
+  }
+
+  @Test
+  public void oneChar_returnsMatch() {
+    assertEquals(
+        new Character('a'), oneChar('a').parse(toIterator("a")).right());
+  }
+
+  @Test
+  public void oneChar_failsAtEndOfString() {
+    assertFalse(oneChar('a').parse(toIterator("")).isRight());
+  }
+
+  @Test
+  public void parseAll_returnsResultsInOrder() {
+    List<String> inputs = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      inputs.add(i % 7 == 0 ? "x" + i : Integer.toString(i));
+    }
+    List<Either<ParserException, String>> results =
+        parseAll(dropRight(digits(), end()), inputs);
+    assertEquals(inputs.size(), results.size());
+    for (int i = 0; i < inputs.size(); i++) {
+      if (i % 7 == 0) {
+        assertEquals(0, results.get(i).left().getErrorIndex());
+      } else {
+        assertEquals(inputs.get(i), results.get(i).right());
+      }
+    }
+  }
+
+  @Test
+  public void parseAll_stopsAtFirstFailure() {
+    List<String> inputs = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      inputs.add(i == 500 || i == 700 ? "x" : "1");
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Either<ParserException, String>> results =
+          parseAll(dropRight(digits(), end()), inputs, executor, true);
+      assertEquals(501, results.size());
+      assertTrue(results.get(499).isRight());
+      assertTrue(results.get(500).isLeft());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void parseAll_acceptsEmptyInput() {
+    assertTrue(parseAll(digits(), new ArrayList<String>()).isEmpty());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void parseAll_rethrowsParserException() {
+    Parser<Character, String> parser = (iterator) -> {
+      throw new IllegalStateException();
+    };
+    parseAll(parser, Arrays.asList("1", "2", "3"));
+  }
+
+  @Test
+  public void parseChars_readsCharArray() {
+    assertEquals(
+      "abc", parseChars(letters(), "abc1".toCharArray()).right());
+  }
+
+  @Test
+  public void parseChars_readsCharSequence() {
+    assertEquals(
+      "abc", parseChars(letters(), new StringBuilder("abc1")).right());
+  }
+
+  @Test
+  public void skipChars_advancesWithoutValue() {
+    UnwindingIterator<Character> iterator = toIterator("  a");
+    assertEquals(null, skipWhitespace().parse(iterator).right());
+    assertEquals(new Character('a'), iterator.peek());
+  }
+
+  @Test
+  public void span_recordsBoundsOfMatch() {
+    Span span = span(Character::isDigit).parse(toIterator("123abc")).right();
+    assertEquals(0, span.start());
+    assertEquals(3, span.end());
+    assertEquals("123", span.toString());
+    assertEquals('2', span.charAt(1));
+    assertEquals("23", span.subSequence(1, 3).toString());
+  }
+
+  @Test
+  public void span_succeedsOnNoMatches() {
+    Span span = span(Character::isDigit).parse(toIterator("abc")).right();
+    assertTrue(span.isEmpty());
+  }
+
+  @Test
+  public void span1_failsOnZeroMatches() {
+    assertFalse(span1(Character::isDigit).parse(toIterator("abc")).isRight());
+  }
+
+  @Test
+  public void span_readsCharArrayInput() {
+    Span span =
+        parseChars(span1(Character::isLetter), "ab1".toCharArray()).right();
+    assertEquals("ab", span.toString());
+  }
+
   @Test
   public void whitespace_returnsAllWhitespace() {
     assertEquals("\n\t\n", whitespace().parse(toIterator("\n\t\nabc")).right());
@@ -72,6 +72,32 @@ public class UnwindingIteratorTest {
     assertEquals(1, unwindingIterator.next().intValue());
   }
 
+  @Test
+  public void reset_returnsToMark() {
+    unwindingIterator.next();
+    int mark = unwindingIterator.mark();
+    skipToEnd();
+    assertFalse(unwindingIterator.hasNext());
+
+    unwindingIterator.reset(mark);
+    assertEquals(2, unwindingIterator.next().intValue());
+    unwindingIterator.reset(mark);
+    assertEquals(2, unwindingIterator.next().intValue());
+    unwindingIterator.release();
+  }
+
+  @Test
+  public void mark_growsPastInitialCapacity() {
+    for (int i = 0; i < 100; i++) {
+      unwindingIterator.wind();
+    }
+    unwindingIterator.next();
+    for (int i = 0; i < 100; i++) {
+      unwindingIterator.unwind();
+    }
+    assertEquals(1, unwindingIterator.next().intValue());
+  }
+
   private void skipToEnd() {
     while (unwindingIterator.hasNext()) {
       unwindingIterator.next();